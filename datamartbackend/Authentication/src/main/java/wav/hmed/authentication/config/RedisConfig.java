@@ -5,7 +5,15 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import wav.hmed.authentication.service.EmailPresenceFilter;
+import wav.hmed.authentication.service.TokenBlacklistService;
+import wav.hmed.authentication.service.UserCache;
+import wav.hmed.authentication.service.VerifiedTokenCache;
+
+import java.nio.charset.StandardCharsets;
 
 @Configuration
 public class RedisConfig {
@@ -18,4 +26,27 @@ public class RedisConfig {
         template.setValueSerializer(new StringRedisSerializer());
         return template;
     }
-}
\ No newline at end of file
+
+    // Applies logouts, user changes and registrations made on any replica to the local caches
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                   TokenBlacklistService tokenBlacklistService,
+                                                                   VerifiedTokenCache verifiedTokenCache,
+                                                                   UserCache userCache,
+                                                                   EmailPresenceFilter emailPresenceFilter) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            String tokenHash = new String(message.getBody(), StandardCharsets.UTF_8);
+            tokenBlacklistService.revoked(tokenHash);
+            verifiedTokenCache.evict(tokenHash);
+        }, new ChannelTopic(TokenBlacklistService.REVOCATION_CHANNEL));
+        container.addMessageListener(
+                (message, pattern) -> userCache.evict(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(UserCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(
+                (message, pattern) -> emailPresenceFilter.added(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(EmailPresenceFilter.REGISTRATION_CHANNEL));
+        return container;
+    }
+}
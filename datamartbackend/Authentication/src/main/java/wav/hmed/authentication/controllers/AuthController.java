@@ -3,12 +3,16 @@ package wav.hmed.authentication.controllers;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import wav.hmed.authentication.dto.AuthenticationRequest;
 import wav.hmed.authentication.dto.AuthenticationResponse;
+import wav.hmed.authentication.dto.IntrospectionRequest;
+import wav.hmed.authentication.dto.RefreshRequest;
 import wav.hmed.authentication.dto.RegisterRequest;
 import wav.hmed.authentication.service.AuthenticationService;
+import wav.hmed.authentication.service.IntrospectionService;
 
 import java.util.Map;
 
@@ -20,6 +24,7 @@ public class AuthController {
 
     private static final Logger log = LogManager.getLogger(AuthController.class);
     private final AuthenticationService authenticationService;
+    private final IntrospectionService introspectionService;
 
     @PostMapping("/register")
     public ResponseEntity<AuthenticationResponse> register(
@@ -35,6 +40,13 @@ public class AuthController {
         return ResponseEntity.ok(authenticationService.authenticate(request));
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthenticationResponse> refresh(
+            @RequestBody RefreshRequest request
+    ) {
+        return ResponseEntity.ok(authenticationService.refresh(request.getRefreshToken()));
+    }
+
     @PostMapping("/logout")
     public ResponseEntity<String> logout(
             @RequestHeader("Authorization") String token
@@ -61,5 +73,21 @@ public class AuthController {
         return ResponseEntity.ok(Map.of("userId", userId));
     }
 
+    // Batch form of current-user for other services: many tokens and/or user ids in one call
+    @PostMapping("/introspect")
+    public ResponseEntity<?> introspect(
+            @RequestHeader(value = "X-Service-Key", required = false) String serviceKey,
+            @RequestBody IntrospectionRequest request
+    ) {
+        if (!introspectionService.isTrustedCaller(serviceKey)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Invalid service key"));
+        }
+        try {
+            return ResponseEntity.ok(introspectionService.introspect(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package wav.hmed.authentication.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import wav.hmed.authentication.service.SigningKeyService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Public keys for verifying access tokens locally; consumers cache them and refetch on an unknown kid
+@RestController
+@RequestMapping("/api/v1/auth/.well-known")
+@RequiredArgsConstructor
+public class JwksController {
+    private final SigningKeyService signingKeyService;
+
+    @GetMapping("/jwks.json")
+    public ResponseEntity<Map<String, List<Map<String, Object>>>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                .body(Map.of("keys", signingKeyService.jwks()));
+    }
+}
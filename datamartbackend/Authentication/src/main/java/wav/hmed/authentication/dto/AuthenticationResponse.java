@@ -13,4 +13,7 @@ public class AuthenticationResponse {
     private String token;
     private String email;
     private String fullName;
+    private String refreshToken;
+    // Access token lifetime in seconds
+    private Long expiresIn;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package wav.hmed.authentication.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class IntrospectionRequest {
+    // Bearer tokens without the "Bearer " prefix
+    private List<String> tokens;
+    private List<String> userIds;
+}
@@ -0,0 +1,17 @@
+package wav.hmed.authentication.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class IntrospectionResponse {
+    private List<IntrospectionResult> tokens;
+    private List<IntrospectionResult> users;
+}
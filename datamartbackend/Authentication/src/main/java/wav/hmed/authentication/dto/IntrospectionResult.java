@@ -0,0 +1,24 @@
+package wav.hmed.authentication.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import wav.hmed.authentication.models.Role;
+
+// One per requested token or user id, in request order; tokens themselves are never echoed back
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IntrospectionResult {
+    // Token: valid, not revoked and its user exists. User id: the user exists
+    private boolean active;
+    private Boolean revoked;
+    private String userId;
+    private String email;
+    private Role role;
+    private Long expiresAt;
+}
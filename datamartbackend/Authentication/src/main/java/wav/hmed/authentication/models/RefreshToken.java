@@ -0,0 +1,40 @@
+package wav.hmed.authentication.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// Only the SHA-256 of the token is stored. Every refresh consumes one token and issues the next in the same family
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "refresh_tokens")
+public class RefreshToken {
+    @Id
+    private String id;
+
+    @Indexed(unique = true)
+    private String tokenHash;
+
+    private String userId;
+
+    // All tokens descended from one sign-in; revoked together on logout or reuse
+    @Indexed
+    private String familyId;
+
+    private Date createdAt;
+
+    // Set when the token is exchanged; presenting it again means it was stolen
+    private Date usedAt;
+
+    // Mongo removes the document once this passes
+    @Indexed(expireAfterSeconds = 0)
+    private Date expiresAt;
+}
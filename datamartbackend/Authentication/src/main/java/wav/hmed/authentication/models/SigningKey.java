@@ -0,0 +1,34 @@
+package wav.hmed.authentication.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// One RSA key pair per rotation period; the id doubles as the JWT "kid" header
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "signing_keys")
+public class SigningKey {
+    @Id
+    private String kid;
+
+    // Base64 X.509 SubjectPublicKeyInfo
+    private String publicKey;
+
+    // Base64 PKCS#8, encrypted with AES-GCM under a key derived from jwt.secret
+    private String privateKey;
+
+    private Date createdAt;
+
+    // Kept past its signing period until every token it signed has expired
+    @Indexed(expireAfterSeconds = 0)
+    private Date expiresAt;
+}
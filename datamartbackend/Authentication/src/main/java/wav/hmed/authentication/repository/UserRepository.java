@@ -4,10 +4,14 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 import wav.hmed.authentication.models.User;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+    // Batch introspection resolves token subjects and user ids in one query
+    List<User> findByEmailInOrIdIn(Collection<String> emails, Collection<String> ids);
 }
\ No newline at end of file
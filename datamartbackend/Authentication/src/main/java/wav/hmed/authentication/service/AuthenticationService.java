@@ -1,6 +1,7 @@
 package wav.hmed.authentication.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -11,10 +12,15 @@ import org.springframework.stereotype.Service;
 import wav.hmed.authentication.dto.AuthenticationRequest;
 import wav.hmed.authentication.dto.AuthenticationResponse;
 import wav.hmed.authentication.dto.RegisterRequest;
+import wav.hmed.authentication.exceptions.InvalidRefreshTokenException;
+import wav.hmed.authentication.models.RefreshToken;
 import wav.hmed.authentication.models.Role;
 import wav.hmed.authentication.models.User;
 import wav.hmed.authentication.repository.UserRepository;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Service
 @RequiredArgsConstructor
 public class AuthenticationService {
@@ -23,78 +29,117 @@ public class AuthenticationService {
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
     private final TokenBlacklistService tokenBlacklistService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final UserCache userCache;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginRateLimiter loginRateLimiter;
+    private final RefreshTokenService refreshTokenService;
+    private final EmailPresenceFilter emailPresenceFilter;
 
     public AuthenticationResponse register(RegisterRequest request) {
-        // Check if email already exists
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new IllegalStateException("Email already registered");
-        }
+        loginRateLimiter.checkRegistration();
 
         var user = User.builder()
                 .fullName(request.getFullName())
                 .email(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordHashingService.run(() -> passwordEncoder.encode(request.getPassword())))
                 .role(Role.USER)
                 .build();
 
-        userRepository.save(user);
-        var jwtToken = jwtService.generateToken(user);
-
-        return AuthenticationResponse.builder()
-                .token(jwtToken)
-                .email(user.getEmail())
-                .fullName(user.getFullName())
-                .build();
+        // The unique email index rejects duplicates, so no existence pre-check is needed
+        try {
+            userRepository.save(user);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalStateException("Email already registered");
+        }
+        emailPresenceFilter.registered(user.getEmail());
+        return issueTokens(user, RefreshTokenService.newFamilyId());
     }
 
     public AuthenticationResponse authenticate(AuthenticationRequest request) {
+        loginRateLimiter.checkLogin(request.getEmail());
+
         try {
-            Authentication authentication = authenticationManager.authenticate(
+            // BCrypt verification runs on the bounded hashing pool, never on the request thread
+            Authentication authentication = passwordHashingService.run(() -> authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
                             request.getEmail(),
                             request.getPassword()
                     )
-            );
+            ));
 
             var user = (User) authentication.getPrincipal();
-            var jwtToken = jwtService.generateToken(user);
-
-            return AuthenticationResponse.builder()
-                    .token(jwtToken)
-                    .email(user.getEmail())
-                    .fullName(user.getFullName())
-                    .build();
+            return issueTokens(user, RefreshTokenService.newFamilyId());
 
         } catch (AuthenticationException e) {
             throw new BadCredentialsException("Invalid email or password");
         }
     }
 
+    // Exchanges a refresh token for a new access token and the next refresh token of the same family
+    public AuthenticationResponse refresh(String refreshToken) {
+        RefreshToken consumed = refreshTokenService.consume(refreshToken);
+        User user = userRepository.findById(consumed.getUserId()).orElse(null);
+        if (user == null) {
+            refreshTokenService.revokeFamily(consumed.getFamilyId());
+            throw new InvalidRefreshTokenException("User no longer exists");
+        }
+        return issueTokens(user, consumed.getFamilyId());
+    }
+
     public void logout(String token) {
-        // Extract expiration time from the token
-        var expirationTime = jwtService.extractExpiration(token).getTime();
-        // Blacklist the token
-        tokenBlacklistService.blacklistToken(token, expirationTime);
+        // Expired access tokens can still log out, which revokes their refresh tokens
+        jwtService.validateTokenAllowExpired(token).ifPresent(claims -> {
+            refreshTokenService.revokeFamily(claims.get(JwtService.FAMILY_CLAIM, String.class));
+            // Access tokens are short-lived, so this entry expires within minutes; no-op once expired
+            tokenBlacklistService.blacklistToken(token, claims.getExpiration().getTime());
+        });
+        // Other replicas evict it when the revocation broadcast arrives
+        verifiedTokenCache.revoke(token);
     }
 
     public boolean isEmailAlreadyRegistered(String email) {
-        return userRepository.existsByEmail(email);
+        return emailPresenceFilter.exists(email);
     }
 
     public String getCurrentUserId(String token) {
-        // Validate the token first
+        // Validate the token first, before trusting a cached verification
         if (tokenBlacklistService.isTokenBlacklisted(token)) {
+            verifiedTokenCache.revoke(token);
             throw new IllegalStateException("Token is blacklisted");
         }
 
+        VerifiedTokenCache.VerifiedToken verified = verifiedTokenCache.get(token);
+        if (verified != null && verified.principal() instanceof User user) {
+            return user.getId();
+        }
+
         // Extract user email from token
         String userEmail = jwtService.extractUsername(token);
 
         // Find user and return their ID
-        User user = userRepository.findByEmail(userEmail)
+        User user = userCache.findByEmail(userEmail)
                 .orElseThrow(() -> new IllegalStateException("User not found"));
 
         return user.getId().toString();
     }
 
+    private AuthenticationResponse issueTokens(User user, String familyId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtService.FAMILY_CLAIM, familyId);
+        claims.put(JwtService.USER_ID_CLAIM, user.getId());
+        if (user.getRole() != null) {
+            claims.put(JwtService.ROLE_CLAIM, user.getRole().name());
+        }
+        var jwtToken = jwtService.generateToken(claims, user);
+
+        return AuthenticationResponse.builder()
+                .token(jwtToken)
+                .refreshToken(refreshTokenService.issue(user, familyId))
+                .expiresIn(jwtService.getExpirationMillis() / 1000)
+                .email(user.getEmail())
+                .fullName(user.getFullName())
+                .build();
+    }
+
 }
\ No newline at end of file
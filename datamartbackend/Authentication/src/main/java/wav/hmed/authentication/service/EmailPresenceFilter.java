@@ -0,0 +1,121 @@
+package wav.hmed.authentication.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import wav.hmed.authentication.models.User;
+import wav.hmed.authentication.repository.UserRepository;
+
+import java.util.stream.Stream;
+
+/**
+ * Answers "is this email registered?" for the signup form. A local Bloom filter over the SHA-256 of every
+ * stored email settles definite negatives in memory; possible hits are confirmed with {@code existsByEmail}
+ * against the unique index. The filter is loaded from the users collection on startup, kept current through
+ * {@link #REGISTRATION_CHANNEL}, and rebuilt periodically so deleted or changed emails age out. Until the
+ * first load succeeds every check goes to Mongo.
+ *
+ * <p>The answer is advisory: registration itself relies on the unique index, so a registration on another
+ * replica that has not reached this filter yet can only make the form say "available" a moment too long.
+ */
+@Service
+public class EmailPresenceFilter {
+    public static final String REGISTRATION_CHANNEL = "auth:email-registered";
+    private static final Logger log = LogManager.getLogger(EmailPresenceFilter.class);
+
+    private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final long expectedUsers;
+    private final double falsePositiveRate;
+
+    private volatile TokenBloomFilter filter;
+    // Non-null while a rebuild is reading users, so registrations during the load land in the new filter too
+    private volatile TokenBloomFilter rebuilding;
+
+    public EmailPresenceFilter(UserRepository userRepository,
+                               MongoTemplate mongoTemplate,
+                               RedisTemplate<String, String> redisTemplate,
+                               @Value("${auth.email-filter.expected-insertions:1000000}") long expectedUsers,
+                               @Value("${auth.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.redisTemplate = redisTemplate;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public boolean exists(String email) {
+        if (email == null || email.isBlank()) {
+            return false;
+        }
+        TokenBloomFilter current = filter;
+        if (current != null && !current.mightContain(TokenHash.of(email))) {
+            return false;
+        }
+        return userRepository.existsByEmail(email);
+    }
+
+    // Called after an email was stored on this replica
+    public void registered(String email) {
+        String emailHash = TokenHash.of(email);
+        added(emailHash);
+        try {
+            redisTemplate.convertAndSend(REGISTRATION_CHANNEL, emailHash);
+        } catch (DataAccessException e) {
+            // Other replicas pick it up on their next rebuild
+            log.warn("Could not publish email registration: {}", e.getMessage());
+        }
+    }
+
+    // Registrations published by any replica, including this one
+    public void added(String emailHash) {
+        TokenBloomFilter current = filter;
+        if (current != null) {
+            current.add(emailHash);
+        }
+        TokenBloomFilter next = rebuilding;
+        if (next != null) {
+            next.add(emailHash);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFilter() {
+        rebuildFilter();
+    }
+
+    @Scheduled(initialDelayString = "${auth.email-filter.rebuild-ms:21600000}",
+            fixedDelayString = "${auth.email-filter.rebuild-ms:21600000}")
+    public synchronized void rebuildFilter() {
+        TokenBloomFilter next = new TokenBloomFilter(expectedUsers, falsePositiveRate);
+        rebuilding = next;
+        try {
+            Query query = new Query();
+            query.fields().include("email");
+            long loaded = 0;
+            try (Stream<User> users = mongoTemplate.stream(query, User.class)) {
+                for (User user : (Iterable<User>) users::iterator) {
+                    if (user.getEmail() != null) {
+                        next.add(TokenHash.of(user.getEmail()));
+                        loaded++;
+                    }
+                }
+            }
+            filter = next;
+            log.info("Loaded {} emails into the email presence filter", loaded);
+        } catch (DataAccessException e) {
+            log.warn("Could not rebuild the email presence filter, keeping the previous one: {}", e.getMessage());
+        } finally {
+            rebuilding = null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package wav.hmed.authentication.service;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import wav.hmed.authentication.dto.IntrospectionRequest;
+import wav.hmed.authentication.dto.IntrospectionResponse;
+import wav.hmed.authentication.dto.IntrospectionResult;
+import wav.hmed.authentication.models.User;
+import wav.hmed.authentication.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves many tokens and user ids for other services in one call: each token is verified locally, all
+ * revocation checks share one pipelined Redis round-trip, and every user is loaded with a single $in query.
+ */
+@Service
+public class IntrospectionService {
+    private final JwtService jwtService;
+    private final TokenBlacklistService tokenBlacklistService;
+    private final UserRepository userRepository;
+    private final byte[] serviceKey;
+    private final int maxBatchSize;
+
+    public IntrospectionService(JwtService jwtService,
+                                TokenBlacklistService tokenBlacklistService,
+                                UserRepository userRepository,
+                                @Value("${auth.introspection.service-key:}") String serviceKey,
+                                @Value("${auth.introspection.max-batch-size:500}") int maxBatchSize) {
+        this.jwtService = jwtService;
+        this.tokenBlacklistService = tokenBlacklistService;
+        this.userRepository = userRepository;
+        this.serviceKey = serviceKey.getBytes(StandardCharsets.UTF_8);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    // Introspection is only for other services; disabled while no key is configured
+    public boolean isTrustedCaller(String key) {
+        return serviceKey.length > 0 && key != null
+                && MessageDigest.isEqual(serviceKey, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public IntrospectionResponse introspect(IntrospectionRequest request) {
+        List<String> tokens = request.getTokens() != null ? request.getTokens() : List.of();
+        List<String> userIds = request.getUserIds() != null ? request.getUserIds() : List.of();
+        if (tokens.size() + userIds.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " tokens and user ids per request");
+        }
+
+        // Signatures and expiry, locally
+        List<Claims> claims = new ArrayList<>(tokens.size());
+        List<String> tokenHashes = new ArrayList<>();
+        Set<String> emails = new LinkedHashSet<>();
+        for (String token : tokens) {
+            Claims tokenClaims = token != null ? jwtService.validateToken(token).orElse(null) : null;
+            claims.add(tokenClaims);
+            if (tokenClaims != null) {
+                tokenHashes.add(TokenHash.of(token));
+                emails.add(tokenClaims.getSubject());
+            } else {
+                tokenHashes.add(null);
+            }
+        }
+
+        Set<String> revoked = tokenBlacklistService.findBlacklisted(
+                tokenHashes.stream().filter(tokenHash -> tokenHash != null).toList());
+
+        Map<String, User> byEmail = new HashMap<>();
+        Map<String, User> byId = new HashMap<>();
+        if (!emails.isEmpty() || !userIds.isEmpty()) {
+            for (User user : userRepository.findByEmailInOrIdIn(emails, new LinkedHashSet<>(userIds))) {
+                byEmail.put(user.getEmail(), user);
+                byId.put(user.getId(), user);
+            }
+        }
+
+        List<IntrospectionResult> tokenResults = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            Claims tokenClaims = claims.get(i);
+            if (tokenClaims == null) {
+                tokenResults.add(IntrospectionResult.builder().active(false).build());
+                continue;
+            }
+            boolean isRevoked = revoked.contains(tokenHashes.get(i));
+            User user = byEmail.get(tokenClaims.getSubject());
+            tokenResults.add(withUser(IntrospectionResult.builder()
+                    .active(!isRevoked && user != null)
+                    .revoked(isRevoked)
+                    .email(tokenClaims.getSubject())
+                    .expiresAt(tokenClaims.getExpiration() != null ? tokenClaims.getExpiration().getTime() : null), user));
+        }
+
+        List<IntrospectionResult> userResults = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            User user = byId.get(userId);
+            userResults.add(withUser(IntrospectionResult.builder()
+                    .active(user != null)
+                    .userId(userId), user));
+        }
+
+        return IntrospectionResponse.builder()
+                .tokens(tokenResults)
+                .users(userResults)
+                .build();
+    }
+
+    private static IntrospectionResult withUser(IntrospectionResult.IntrospectionResultBuilder result, User user) {
+        if (user != null) {
+            result.userId(user.getId())
+                    .email(user.getEmail())
+                    .role(user.getRole());
+        }
+        return result.build();
+    }
+}
@@ -1,8 +1,14 @@
 package wav.hmed.authentication.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,15 +20,88 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 
+/**
+ * Issues RS256 access tokens signed with the current key from {@link SigningKeyService}, with its id in the
+ * "kid" header, so other services can verify them against the published JWKS without the shared secret.
+ * HS256 tokens signed with {@code jwt.secret} are still accepted while {@code jwt.accept-hs256} is on, so
+ * tokens issued before the switch keep working until they expire.
+ */
 @Service
 public class JwtService {
-    @Value("${jwt.secret}")
-    private String secretKey;
+    // Refresh-token family the access token was issued with, so logout can revoke it
+    public static final String FAMILY_CLAIM = "fid";
+    // Lets other services resolve the caller without asking this service
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
 
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    private final long jwtExpiration;
+    private final SigningKeyService signingKeys;
+    private final SignatureAlgorithm algorithm;
+    // Decoded once at startup; both are immutable and thread-safe
+    private final Key hmacKey;
+    private final JwtParser jwtParser;
+
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${jwt.expiration}") long jwtExpiration,
+                      SigningKeyService signingKeys,
+                      @Value("${jwt.algorithm:RS256}") String algorithm,
+                      @Value("${jwt.accept-hs256:true}") boolean acceptHs256) {
+        this.jwtExpiration = jwtExpiration;
+        this.signingKeys = signingKeys;
+        this.algorithm = SignatureAlgorithm.forName(algorithm);
+        if (this.algorithm != SignatureAlgorithm.RS256 && this.algorithm != SignatureAlgorithm.HS256) {
+            throw new IllegalArgumentException("Unsupported jwt.algorithm: " + algorithm + ". Use RS256 or HS256.");
+        }
+        this.hmacKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        boolean hs256Allowed = acceptHs256 || this.algorithm == SignatureAlgorithm.HS256;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        // The key is chosen by algorithm, so an HS256 token can never be checked against an RSA key
+                        if (SignatureAlgorithm.RS256.getValue().equals(header.getAlgorithm())) {
+                            return signingKeys.publicKey(header.getKeyId())
+                                    .orElseThrow(() -> new UnsupportedJwtException("Unknown signing key: " + header.getKeyId()));
+                        }
+                        if (hs256Allowed && SignatureAlgorithm.HS256.getValue().equals(header.getAlgorithm())) {
+                            return hmacKey;
+                        }
+                        throw new UnsupportedJwtException("Unsupported signing algorithm: " + header.getAlgorithm());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Verifies the signature and expiry of a token once and returns its claims, or empty when the token
+     * is malformed, tampered with or expired. Use the returned claims for everything else about the request
+     * instead of re-parsing the token.
+     */
+    public Optional<Claims> validateToken(String token) {
+        try {
+            return Optional.of(jwtParser.parseClaimsJws(token).getBody());
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Like validateToken, but also returns the claims of an expired token whose signature is valid
+    public Optional<Claims> validateTokenAllowExpired(String token) {
+        try {
+            return Optional.of(jwtParser.parseClaimsJws(token).getBody());
+        } catch (ExpiredJwtException e) {
+            return Optional.of(e.getClaims()); // Expiry is only checked after the signature
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    public long getExpirationMillis() {
+        return jwtExpiration;
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -33,24 +112,30 @@ public class JwtService {
     }
 
     public String generateToken(Map<String, Object> extraClaims, User userDetails) {
-        return Jwts
+        var builder = Jwts
                 .builder()
                 .setClaims(extraClaims)
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
-                .compact();
+                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration));
+        if (algorithm == SignatureAlgorithm.RS256) {
+            SigningKeyService.ActiveKey key = signingKeys.current();
+            return builder.setHeaderParam(JwsHeader.KEY_ID, key.kid())
+                    .signWith(key.privateKey(), SignatureAlgorithm.RS256)
+                    .compact();
+        }
+        return builder.signWith(hmacKey, SignatureAlgorithm.HS256).compact();
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) &&
-                !isTokenExpired(token));
+    // Expiry was already enforced when the claims were parsed
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject() != null && claims.getSubject().equals(userDetails.getUsername());
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public boolean isTokenValid(String token, UserDetails userDetails) {
+        return validateToken(token)
+                .map(claims -> isTokenValid(claims, userDetails))
+                .orElse(false);
     }
 
     public Date extractExpiration(String token) {
@@ -63,16 +148,8 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
-
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-}
\ No newline at end of file
+}
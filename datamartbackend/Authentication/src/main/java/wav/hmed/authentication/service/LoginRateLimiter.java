@@ -0,0 +1,106 @@
+package wav.hmed.authentication.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import wav.hmed.authentication.exceptions.TooManyRequestsException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fixed-window counters in Redis (shared by all replicas) that cap sign-in and registration attempts per
+ * client IP and per account before any password is hashed. Each attempt is counted by one script that also
+ * sets the window's expiry, so no failure can leave a counter without a TTL. Rejections are 429s with
+ * Retry-After. If Redis is unavailable the limiter lets requests through; the bounded hashing pool still
+ * protects the CPU.
+ */
+@Service
+public class LoginRateLimiter {
+    private static final Logger log = LogManager.getLogger(LoginRateLimiter.class);
+    private static final String KEY_PREFIX = "ratelimit:";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int perIpLimit;
+    private final int perAccountLimit;
+    private final Duration window;
+    private final RedisScript<List> attemptScript = script();
+
+    public LoginRateLimiter(RedisTemplate<String, String> redisTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${auth.rate-limit.per-ip:30}") int perIpLimit,
+                            @Value("${auth.rate-limit.per-account:10}") int perAccountLimit,
+                            @Value("${auth.rate-limit.window:PT1M}") Duration window) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.perIpLimit = perIpLimit;
+        this.perAccountLimit = perAccountLimit;
+        this.window = window;
+    }
+
+    public void checkLogin(String email) {
+        String ip = clientIp();
+        if (ip != null) {
+            check("ip:" + ip, perIpLimit, "login");
+        }
+        if (email != null) {
+            check("account:" + email.toLowerCase(Locale.ROOT), perAccountLimit, "login");
+        }
+    }
+
+    public void checkRegistration() {
+        String ip = clientIp();
+        if (ip != null) {
+            check("ip:" + ip, perIpLimit, "register");
+        }
+    }
+
+    private void check(String subject, int limit, String action) {
+        String key = KEY_PREFIX + action + ":" + subject;
+        long attempts;
+        long ttlMillis;
+        try {
+            List<?> result = redisTemplate.execute(attemptScript, List.of(key), String.valueOf(window.toMillis()));
+            attempts = ((Number) result.get(0)).longValue();
+            ttlMillis = ((Number) result.get(1)).longValue();
+        } catch (DataAccessException e) {
+            log.warn("Rate limiter unavailable, allowing {}: {}", action, e.getMessage());
+            return;
+        }
+        if (attempts > limit) {
+            meterRegistry.counter("auth.rate_limit.rejected", "action", action,
+                    "scope", subject.substring(0, subject.indexOf(':'))).increment();
+            long retryAfter = ttlMillis > 0 ? (ttlMillis + 999) / 1000 : window.toSeconds();
+            throw new TooManyRequestsException("Too many attempts, please retry later", retryAfter);
+        }
+    }
+
+    // Honours X-Forwarded-For only through server.forward-headers-strategy, never from the raw header
+    private static String clientIp() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            return request.getRemoteAddr();
+        }
+        return null;
+    }
+
+    private static RedisScript<List> script() {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("scripts/ratelimit/attempt.lua")));
+        script.setResultType(List.class);
+        return script;
+    }
+}
@@ -0,0 +1,94 @@
+package wav.hmed.authentication.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import wav.hmed.authentication.exceptions.InvalidRefreshTokenException;
+import wav.hmed.authentication.models.RefreshToken;
+import wav.hmed.authentication.models.User;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Opaque, rotating refresh tokens. Each one can be exchanged exactly once (the exchange is a single
+ * findAndModify on its hash), and yields the next token of the same family. A token that is presented
+ * again after being exchanged can only be a copy, so the whole family is revoked and its holder has to sign
+ * in again. Expired tokens are removed by a TTL index.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger log = LogManager.getLogger(RefreshTokenService.class);
+    private static final int TOKEN_BYTES = 32;
+
+    private final MongoTemplate mongoTemplate;
+    private final long refreshExpiration;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(MongoTemplate mongoTemplate,
+                               @Value("${jwt.refresh-expiration:1209600000}") long refreshExpiration) {
+        this.mongoTemplate = mongoTemplate;
+        this.refreshExpiration = refreshExpiration;
+    }
+
+    public static String newFamilyId() {
+        return UUID.randomUUID().toString();
+    }
+
+    // Returns the raw token; only its hash is stored
+    public String issue(User user, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Date now = new Date();
+        mongoTemplate.insert(RefreshToken.builder()
+                .tokenHash(TokenHash.of(token))
+                .userId(user.getId())
+                .familyId(familyId)
+                .createdAt(now)
+                .expiresAt(new Date(now.getTime() + refreshExpiration))
+                .build());
+        return token;
+    }
+
+    /**
+     * Marks the token as used and returns it. Throws for unknown or expired tokens, and revokes the family
+     * when the token had already been used.
+     */
+    public RefreshToken consume(String token) {
+        if (token == null || token.isBlank()) {
+            throw new InvalidRefreshTokenException("Refresh token is required");
+        }
+        String tokenHash = TokenHash.of(token);
+        Date now = new Date();
+        Query unused = Query.query(Criteria.where("tokenHash").is(tokenHash)
+                .and("usedAt").is(null)
+                .and("expiresAt").gt(now));
+        RefreshToken consumed = mongoTemplate.findAndModify(unused, Update.update("usedAt", now), RefreshToken.class);
+        if (consumed != null) {
+            return consumed;
+        }
+
+        RefreshToken existing = mongoTemplate.findOne(Query.query(Criteria.where("tokenHash").is(tokenHash)), RefreshToken.class);
+        if (existing != null && existing.getUsedAt() != null) {
+            revokeFamily(existing.getFamilyId());
+            log.warn("Refresh token reuse for user {}; revoked token family {}", existing.getUserId(), existing.getFamilyId());
+            throw new InvalidRefreshTokenException("Refresh token was already used; please sign in again");
+        }
+        throw new InvalidRefreshTokenException("Invalid or expired refresh token");
+    }
+
+    public void revokeFamily(String familyId) {
+        if (familyId != null) {
+            mongoTemplate.remove(Query.query(Criteria.where("familyId").is(familyId)), RefreshToken.class);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package wav.hmed.authentication.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import wav.hmed.authentication.models.SigningKey;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * RSA key pairs for signing access tokens, shared by all replicas through the signing_keys collection.
+ * A new key is created once per rotation period; its id is derived from the period, so replicas racing to
+ * rotate insert the same document and all but one get a duplicate key. The newest key signs, and every key
+ * that has not expired is published in the JWKS so tokens signed before a rotation keep verifying.
+ *
+ * <p>A key whose private half cannot be decrypted (e.g. after {@code jwt.secret} changed) still verifies and
+ * is still published, but never signs; when that leaves the current period without a usable key, a
+ * replacement is created under a distinct kid.
+ */
+@Service
+public class SigningKeyService {
+    private static final Logger log = LogManager.getLogger(SigningKeyService.class);
+    private static final int RSA_KEY_SIZE = 2048;
+    private static final int GCM_IV_BYTES = 12;
+    private static final long MIN_RELOAD_INTERVAL_MS = 10_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final SecretKeySpec wrappingKey;
+    private final Duration rotationPeriod;
+    private final SecureRandom random = new SecureRandom();
+
+    // Newest first; replaced wholesale on reload
+    private volatile List<ActiveKey> keys = List.of();
+    private volatile long lastReload;
+
+    public SigningKeyService(MongoTemplate mongoTemplate,
+                             @Value("${jwt.secret}") String secret,
+                             @Value("${jwt.rotation-period:P30D}") Duration rotationPeriod) {
+        this.mongoTemplate = mongoTemplate;
+        this.wrappingKey = new SecretKeySpec(sha256(secret), "AES");
+        this.rotationPeriod = rotationPeriod;
+    }
+
+    // privateKey is null when it could not be decrypted; such keys only verify
+    public record ActiveKey(String kid, RSAPublicKey publicKey, PrivateKey privateKey, Instant createdAt) {
+    }
+
+    public ActiveKey current() {
+        Optional<ActiveKey> signing = signingKey();
+        if (signing.isEmpty()) {
+            rotateIfDue();
+            signing = signingKey();
+        }
+        return signing.orElseThrow(() -> new IllegalStateException(
+                "No usable token signing key: signing_keys is unreachable or its keys cannot be decrypted with jwt.secret"));
+    }
+
+    // Keys created by another replica since the last reload are picked up here, at most every few seconds
+    public Optional<RSAPublicKey> publicKey(String kid) {
+        Optional<RSAPublicKey> key = find(kid);
+        if (key.isEmpty() && kid != null && System.currentTimeMillis() - lastReload > MIN_RELOAD_INTERVAL_MS) {
+            reload();
+            key = find(kid);
+        }
+        return key;
+    }
+
+    // RFC 7517 key set of every key that may still have live tokens
+    public List<Map<String, Object>> jwks() {
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        for (ActiveKey key : keys) {
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "RSA");
+            jwk.put("kid", key.kid());
+            jwk.put("use", "sig");
+            jwk.put("alg", "RS256");
+            jwk.put("n", base64Url(key.publicKey().getModulus()));
+            jwk.put("e", base64Url(key.publicKey().getPublicExponent()));
+            jwks.add(jwk);
+        }
+        return jwks;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${jwt.rotation-check-ms:3600000}",
+            fixedDelayString = "${jwt.rotation-check-ms:3600000}")
+    public synchronized void rotateIfDue() {
+        long period = rotationPeriod.toMillis();
+        long slot = System.currentTimeMillis() / period;
+        String kid = "rsa-" + slot;
+        Date periodStart = new Date(slot * period);
+        Date expiresAt = new Date((slot + 2) * period);
+
+        try {
+            reload();
+            if (hasSigningKeySince(periodStart)) {
+                return;
+            }
+            if (find(kid).isEmpty()) {
+                try {
+                    mongoTemplate.insert(generate(kid, periodStart, expiresAt));
+                    log.info("Created signing key {}", kid);
+                } catch (DuplicateKeyException e) {
+                    // Another replica rotated first
+                }
+                reload();
+            }
+            if (!hasSigningKeySince(periodStart)) {
+                // This period's key exists but cannot be decrypted here; newer createdAt makes the replacement sign
+                String replacement = kid + "-" + Long.toHexString(random.nextLong());
+                mongoTemplate.insert(generate(replacement, new Date(), expiresAt));
+                log.warn("Signing key {} is unreadable with the configured jwt.secret; created {}", kid, replacement);
+                reload();
+            }
+        } catch (DataAccessException e) {
+            log.error("Could not rotate signing keys: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void reload() {
+        Query query = Query.query(Criteria.where("expiresAt").gt(new Date()))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"));
+        List<ActiveKey> loaded = new ArrayList<>();
+        try {
+            for (SigningKey stored : mongoTemplate.find(query, SigningKey.class)) {
+                try {
+                    loaded.add(decode(stored));
+                } catch (GeneralSecurityException | IllegalArgumentException e) {
+                    log.error("Skipping unreadable signing key {}: {}", stored.getKid(), e.getMessage());
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not load signing keys, keeping {} cached: {}", keys.size(), e.getMessage());
+            return;
+        } finally {
+            lastReload = System.currentTimeMillis();
+        }
+        if (!loaded.isEmpty()) {
+            keys = List.copyOf(loaded);
+        }
+    }
+
+    private Optional<ActiveKey> signingKey() {
+        return keys.stream().filter(key -> key.privateKey() != null).findFirst();
+    }
+
+    private boolean hasSigningKeySince(Date periodStart) {
+        return keys.stream().anyMatch(key -> key.privateKey() != null && !key.createdAt().isBefore(periodStart.toInstant()));
+    }
+
+    private Optional<RSAPublicKey> find(String kid) {
+        return keys.stream()
+                .filter(key -> key.kid().equals(kid))
+                .map(ActiveKey::publicKey)
+                .findFirst();
+    }
+
+    private SigningKey generate(String kid, Date createdAt, Date expiresAt) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(RSA_KEY_SIZE, random);
+            KeyPair pair = generator.generateKeyPair();
+            return SigningKey.builder()
+                    .kid(kid)
+                    .publicKey(Base64.getEncoder().encodeToString(pair.getPublic().getEncoded()))
+                    .privateKey(Base64.getEncoder().encodeToString(encrypt(pair.getPrivate().getEncoded())))
+                    .createdAt(createdAt)
+                    .expiresAt(expiresAt)
+                    .build();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not generate signing key", e);
+        }
+    }
+
+    private ActiveKey decode(SigningKey stored) throws GeneralSecurityException {
+        KeyFactory factory = KeyFactory.getInstance("RSA");
+        RSAPublicKey publicKey = (RSAPublicKey) factory.generatePublic(
+                new X509EncodedKeySpec(Base64.getDecoder().decode(stored.getPublicKey())));
+        PrivateKey privateKey = null;
+        try {
+            privateKey = factory.generatePrivate(
+                    new PKCS8EncodedKeySpec(decrypt(Base64.getDecoder().decode(stored.getPrivateKey()))));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.error("Cannot decrypt signing key {}; keeping it for verification only: {}", stored.getKid(), e.getMessage());
+        }
+        return new ActiveKey(stored.getKid(), publicKey, privateKey, stored.getCreatedAt().toInstant());
+    }
+
+    private byte[] encrypt(byte[] plain) throws GeneralSecurityException {
+        byte[] iv = new byte[GCM_IV_BYTES];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, wrappingKey, new GCMParameterSpec(128, iv));
+        byte[] sealed = cipher.doFinal(plain);
+        return ByteBuffer.allocate(iv.length + sealed.length).put(iv).put(sealed).array();
+    }
+
+    private byte[] decrypt(byte[] stored) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, wrappingKey, new GCMParameterSpec(128, stored, 0, GCM_IV_BYTES));
+        return cipher.doFinal(stored, GCM_IV_BYTES, stored.length - GCM_IV_BYTES);
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length); // Unsigned big-endian
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static byte[] sha256(String secret) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
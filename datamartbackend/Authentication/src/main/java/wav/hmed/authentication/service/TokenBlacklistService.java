@@ -1,16 +1,52 @@
 package wav.hmed.authentication.service;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Revoked tokens live in Redis as {@code blacklist:<sha256>} until they would have expired anyway. A local
+ * Bloom filter of those hashes answers the common "not revoked" case without a Redis call; only possible
+ * hits are confirmed against Redis. The filter is loaded with a SCAN on startup, kept current through
+ * {@link #REVOCATION_CHANNEL}, and rebuilt periodically so expired revocations age out of it. Until the
+ * first load succeeds every check goes to Redis.
+ */
 @Service
 public class TokenBlacklistService {
+    public static final String REVOCATION_CHANNEL = "auth:revoked";
+    private static final Logger log = LogManager.getLogger(TokenBlacklistService.class);
+    private static final String KEY_PREFIX = "blacklist:";
+
     private final RedisTemplate<String, String> redisTemplate;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+
+    private volatile TokenBloomFilter filter;
+    // Non-null while a rebuild is scanning, so revocations during the scan land in the new filter too
+    private volatile TokenBloomFilter rebuilding;
 
-    public TokenBlacklistService(RedisTemplate<String, String> redisTemplate) {
+    public TokenBlacklistService(RedisTemplate<String, String> redisTemplate,
+                                 @Value("${auth.revocation-filter.expected-insertions:100000}") long expectedRevocations,
+                                 @Value("${auth.revocation-filter.false-positive-rate:0.001}") double falsePositiveRate) {
         this.redisTemplate = redisTemplate;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
     }
 
     public void blacklistToken(String token, long expirationTimeInMillis) {
@@ -18,16 +54,124 @@ public class TokenBlacklistService {
 
         // Only blacklist if token hasn't expired yet
         if (ttl > 0) {
+            String tokenHash = TokenHash.of(token);
             redisTemplate.opsForValue().set(
-                    "blacklist:" + token,
+                    KEY_PREFIX + tokenHash,
                     "blacklisted",
                     ttl,
                     TimeUnit.MILLISECONDS
             );
+            revoked(tokenHash);
+            try {
+                redisTemplate.convertAndSend(REVOCATION_CHANNEL, tokenHash);
+            } catch (DataAccessException e) {
+                // Other replicas pick it up on their next rebuild; until then their filters may miss it
+                log.warn("Could not publish token revocation: {}", e.getMessage());
+            }
         }
     }
 
     public boolean isTokenBlacklisted(String token) {
-        return Boolean.TRUE.equals(redisTemplate.hasKey("blacklist:" + token));
+        String tokenHash = TokenHash.of(token);
+        TokenBloomFilter current = filter;
+        if (current != null && !current.mightContain(tokenHash)) {
+            return false;
+        }
+        return Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + tokenHash));
+    }
+
+    /**
+     * Batch form of {@link #isTokenBlacklisted}: returns the hashes among {@code tokenHashes} that are revoked.
+     * Filter misses are settled locally; the rest are checked in one pipelined round-trip.
+     */
+    public Set<String> findBlacklisted(Collection<String> tokenHashes) {
+        TokenBloomFilter current = filter;
+        List<String> candidates = tokenHashes.stream()
+                .filter(tokenHash -> current == null || current.mightContain(tokenHash))
+                .distinct()
+                .toList();
+        if (candidates.isEmpty()) {
+            return Set.of();
+        }
+
+        List<Object> exists = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String tokenHash : candidates) {
+                connection.keyCommands().exists((KEY_PREFIX + tokenHash).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        Set<String> revoked = new HashSet<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (Boolean.TRUE.equals(exists.get(i))) {
+                revoked.add(candidates.get(i));
+            }
+        }
+        return revoked;
+    }
+
+    // Revocations published by any replica, including this one
+    public void revoked(String tokenHash) {
+        TokenBloomFilter current = filter;
+        if (current != null) {
+            current.add(tokenHash);
+        }
+        TokenBloomFilter next = rebuilding;
+        if (next != null) {
+            next.add(tokenHash);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFilter() {
+        rebuildFilter();
+    }
+
+    @Scheduled(initialDelayString = "${auth.revocation-filter.rebuild-ms:3600000}",
+            fixedDelayString = "${auth.revocation-filter.rebuild-ms:3600000}")
+    public synchronized void rebuildFilter() {
+        TokenBloomFilter next = new TokenBloomFilter(expectedRevocations, falsePositiveRate);
+        rebuilding = next;
+        try {
+            long loaded = 0;
+            long migrated = 0;
+            ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build();
+            try (Cursor<String> keys = redisTemplate.scan(options)) {
+                while (keys.hasNext()) {
+                    String suffix = keys.next().substring(KEY_PREFIX.length());
+                    if (!TokenHash.isHash(suffix)) {
+                        suffix = migrateLegacyKey(suffix);
+                        if (suffix == null) {
+                            continue;
+                        }
+                        migrated++;
+                    }
+                    next.add(suffix);
+                    loaded++;
+                }
+            }
+            filter = next;
+            log.info("Loaded {} revoked tokens into the revocation filter ({} legacy keys migrated)", loaded, migrated);
+        } catch (DataAccessException e) {
+            log.warn("Could not rebuild the revocation filter, keeping the previous one: {}", e.getMessage());
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    // Entries written before hashing stored the whole token in the key; re-key them with the same TTL
+    private String migrateLegacyKey(String token) {
+        String legacyKey = KEY_PREFIX + token;
+        Long ttl = redisTemplate.getExpire(legacyKey, TimeUnit.MILLISECONDS);
+        if (ttl == null || ttl == -2) {
+            return null; // Expired in the meantime
+        }
+        String tokenHash = TokenHash.of(token);
+        if (ttl > 0) {
+            redisTemplate.opsForValue().set(KEY_PREFIX + tokenHash, "blacklisted", ttl, TimeUnit.MILLISECONDS);
+        } else {
+            redisTemplate.opsForValue().set(KEY_PREFIX + tokenHash, "blacklisted");
+        }
+        redisTemplate.delete(legacyKey);
+        return tokenHash;
     }
-}
\ No newline at end of file
+}
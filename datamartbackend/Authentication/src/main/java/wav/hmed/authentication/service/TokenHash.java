@@ -0,0 +1,30 @@
+package wav.hmed.authentication.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 of a token as lowercase hex. Caches, blacklist keys and revocation messages carry this instead
+ * of the bearer token itself.
+ */
+public final class TokenHash {
+    public static final int LENGTH = 64;
+
+    private TokenHash() {
+    }
+
+    public static String of(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static boolean isHash(String value) {
+        return value.length() == LENGTH && value.chars().allMatch(c -> Character.digit(c, 16) >= 0);
+    }
+}
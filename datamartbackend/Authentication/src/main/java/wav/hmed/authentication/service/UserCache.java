@@ -0,0 +1,74 @@
+package wav.hmed.authentication.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import wav.hmed.authentication.models.User;
+import wav.hmed.authentication.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Users by email for the per-request lookups (the JWT filter and {@code /current-user}), so they stop
+ * going to Mongo every time. Entries expire after {@code auth.user-cache.ttl}; changes made through
+ * {@link UserService} evict them immediately here and, via {@link #INVALIDATION_CHANNEL}, on the other
+ * replicas. Unknown emails are not cached.
+ */
+@Service
+public class UserCache {
+    public static final String INVALIDATION_CHANNEL = "auth:user-changed";
+    private static final Logger log = LogManager.getLogger(UserCache.class);
+
+    private final UserRepository userRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final Cache<String, User> cache;
+
+    public UserCache(UserRepository userRepository,
+                     RedisTemplate<String, String> redisTemplate,
+                     VerifiedTokenCache verifiedTokenCache,
+                     MeterRegistry meterRegistry,
+                     @Value("${auth.user-cache.max-size:10000}") long maxSize,
+                     @Value("${auth.user-cache.ttl:PT10M}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+    }
+
+    public Optional<User> findByEmail(String email) {
+        return Optional.ofNullable(cache.get(email, key -> userRepository.findByEmail(key).orElse(null)));
+    }
+
+    // Call after any change to the user stored under this email
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        evict(email);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, email);
+        } catch (DataAccessException e) {
+            log.warn("Could not publish user invalidation: {}", e.getMessage());
+        }
+    }
+
+    // Also drops verified tokens that still carry the old principal
+    public void evict(String email) {
+        cache.invalidate(email);
+        verifiedTokenCache.evictUser(email);
+    }
+}
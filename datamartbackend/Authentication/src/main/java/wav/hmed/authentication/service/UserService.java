@@ -1,7 +1,12 @@
 package wav.hmed.authentication.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import wav.hmed.authentication.models.User;
 import wav.hmed.authentication.repository.UserRepository;
@@ -13,6 +18,9 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final MongoTemplate mongoTemplate;
+    private final EmailPresenceFilter emailPresenceFilter;
 
     public List<User> getAllUsers() {
         return userRepository.findAll();
@@ -26,15 +34,40 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        String previousEmail = user.getEmail();
         user.setFullName(userDetails.getFullName());
         user.setEmail(userDetails.getEmail());
         // Don't update password here - create a separate endpoint for password updates
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userCache.invalidate(previousEmail);
+        userCache.invalidate(savedUser.getEmail());
+        emailPresenceFilter.registered(savedUser.getEmail());
+        return savedUser;
     }
 
     public void deleteUser(String id) {
-        userRepository.deleteById(id);
+        userRepository.findById(id).ifPresent(user -> {
+            userRepository.deleteById(id);
+            userCache.invalidate(user.getEmail());
+        });
+    }
+
+    /**
+     * Stores a re-hashed password after a successful login. Only applies if the stored hash is still the one
+     * that was just verified, so a concurrent password change is never overwritten.
+     */
+    public UserDetails upgradePasswordHash(UserDetails userDetails, String newEncodedPassword) {
+        Query query = Query.query(Criteria.where("email").is(userDetails.getUsername())
+                .and("password").is(userDetails.getPassword()));
+        if (mongoTemplate.updateFirst(query, Update.update("password", newEncodedPassword), User.class).getModifiedCount() == 0) {
+            return userDetails;
+        }
+        userCache.invalidate(userDetails.getUsername());
+        if (userDetails instanceof User user) {
+            user.setPassword(newEncodedPassword);
+        }
+        return userDetails;
     }
 
     public boolean isCurrentUser(String userId) {
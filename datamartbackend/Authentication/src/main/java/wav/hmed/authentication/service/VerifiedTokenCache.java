@@ -0,0 +1,77 @@
+package wav.hmed.authentication.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Tokens this replica has already verified, keyed by their SHA-256, with the principal they resolved to.
+ * A hit lets the filter skip the signature check and the user query. Callers still run the
+ * {@link TokenBlacklistService} check first, so a cached entry is never trusted for a revoked token.
+ *
+ * <p>An entry never outlives its token, and lives at most {@code auth.token-cache.max-ttl} so that user
+ * changes are picked up. Logout evicts locally, and the revocation broadcast by
+ * {@link TokenBlacklistService} evicts it on the other replicas; a replica that misses the broadcast drops
+ * the entry the next time the blacklist check rejects the token.
+ */
+@Service
+public class VerifiedTokenCache {
+    private final Cache<String, VerifiedToken> cache;
+
+    public VerifiedTokenCache(@Value("${auth.token-cache.max-size:10000}") long maxSize,
+                              @Value("${auth.token-cache.max-ttl:PT5M}") Duration maxTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long untilExpiry = value.expiresAtMillis() - System.currentTimeMillis();
+                        return Duration.ofMillis(Math.max(0, Math.min(untilExpiry, maxTtl.toMillis()))).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // Null when the token is unknown here or has expired
+    public VerifiedToken get(String token) {
+        VerifiedToken verified = cache.getIfPresent(TokenHash.of(token));
+        return verified != null && verified.expiresAtMillis() > System.currentTimeMillis() ? verified : null;
+    }
+
+    public void put(String token, UserDetails principal, Date expiresAt) {
+        cache.put(TokenHash.of(token), new VerifiedToken(principal, expiresAt.getTime()));
+    }
+
+    public void revoke(String token) {
+        cache.invalidate(TokenHash.of(token));
+    }
+
+    // Revocations published by any replica through TokenBlacklistService, including this one
+    public void evict(String tokenHash) {
+        cache.invalidate(tokenHash);
+    }
+
+    // After a user changes, so their tokens resolve the fresh principal on the next request
+    public void evictUser(String username) {
+        cache.asMap().values().removeIf(verified -> username.equals(verified.principal().getUsername()));
+    }
+
+    public record VerifiedToken(UserDetails principal, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,12 @@
+-- Counts one attempt in a fixed window. The counter and its expiry are set together, so a counter can
+-- never be left without a TTL; one that already lacks one (written by a non-atomic INCR) gets the window.
+-- KEYS[1] counter
+-- ARGV[1] window (ms)
+-- Returns {attempts, remaining window in ms}
+local attempts = redis.call('INCR', KEYS[1])
+local ttl = redis.call('PTTL', KEYS[1])
+if ttl < 0 then
+    redis.call('PEXPIRE', KEYS[1], ARGV[1])
+    ttl = tonumber(ARGV[1])
+end
+return {attempts, ttl}
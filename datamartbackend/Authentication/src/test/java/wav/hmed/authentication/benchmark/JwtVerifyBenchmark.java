@@ -0,0 +1,89 @@
+package wav.hmed.authentication.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import wav.hmed.authentication.models.Role;
+import wav.hmed.authentication.models.User;
+import wav.hmed.authentication.service.JwtService;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request: the previous filter path (key and parser rebuilt per call, token
+ * parsed three times) against {@link JwtService#validateToken}.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.mainClass=wav.hmed.authentication.benchmark.JwtVerifyBenchmark
+ * -Dexec.classpathScope=test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    private String secret;
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        secret = Encoders.BASE64.encode(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+        jwtService = new JwtService(secret, TimeUnit.HOURS.toMillis(1), null, "HS256", true);
+        token = jwtService.generateToken(User.builder()
+                .email("bench@example.com")
+                .fullName("Bench User")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Benchmark
+    public boolean legacyVerify() {
+        // extractUsername in the filter, then subject and expiry again in isTokenValid
+        String subject = legacyClaims().getSubject();
+        return subject.equals(legacyClaims().getSubject()) && !legacyClaims().getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public boolean cachedVerify() {
+        return jwtService.validateToken(token)
+                .map(claims -> "bench@example.com".equals(claims.getSubject()))
+                .orElse(false);
+    }
+
+    private Claims legacyClaims() {
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerifyBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
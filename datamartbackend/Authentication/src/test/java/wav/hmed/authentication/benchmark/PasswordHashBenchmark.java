@@ -0,0 +1,75 @@
+package wav.hmed.authentication.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-hash latency of the supported password encoders, to choose {@code auth.password.encoder} and
+ * {@code auth.password.bcrypt-strength} on the machines that will run them. A login costs one
+ * {@code matches}; divide the cores given to {@code auth.hashing.threads} by that latency for the
+ * sustainable logins per second.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.mainClass=wav.hmed.authentication.benchmark.PasswordHashBenchmark
+ * -Dexec.classpathScope=test}, optionally narrowing with {@code -Dexec.args="-p encoder=bcrypt-12"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class PasswordHashBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"bcrypt-10", "bcrypt-11", "bcrypt-12", "bcrypt-13", "pbkdf2"})
+    private String encoder;
+
+    private PasswordEncoder passwordEncoder;
+    private String storedHash;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = encoder.startsWith("bcrypt-")
+                ? new BCryptPasswordEncoder(Integer.parseInt(encoder.substring("bcrypt-".length())))
+                : Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8();
+        storedHash = passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches(PASSWORD, storedHash);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        options.include(PasswordHashBenchmark.class.getSimpleName());
+        if (args.length == 2 && "-p".equals(args[0]) && args[1].contains("=")) {
+            String[] param = args[1].split("=", 2);
+            options.param(param[0], param[1]);
+        }
+        new Runner(options.build()).run();
+    }
+}
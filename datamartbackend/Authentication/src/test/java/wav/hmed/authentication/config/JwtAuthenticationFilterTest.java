@@ -0,0 +1,90 @@
+package wav.hmed.authentication.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import wav.hmed.authentication.models.Role;
+import wav.hmed.authentication.models.User;
+import wav.hmed.authentication.service.JwtService;
+import wav.hmed.authentication.service.TokenBlacklistService;
+import wav.hmed.authentication.service.VerifiedTokenCache;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+    private static final String TOKEN = "cached-token";
+
+    @Mock
+    private JwtService jwtService;
+    @Mock
+    private UserDetailsService userDetailsService;
+    @Mock
+    private TokenBlacklistService tokenBlacklistService;
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+    @Mock
+    private FilterChain filterChain;
+
+    private VerifiedTokenCache verifiedTokenCache;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        SecurityContextHolder.clearContext();
+        verifiedTokenCache = new VerifiedTokenCache(100, Duration.ofMinutes(5));
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService, tokenBlacklistService, verifiedTokenCache);
+
+        User user = User.builder()
+                .id("user-1")
+                .email("john@example.com")
+                .role(Role.USER)
+                .build();
+        verifiedTokenCache.put(TOKEN, user, new Date(System.currentTimeMillis() + 60_000));
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + TOKEN);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testCachedToken_Authenticates() throws Exception {
+        // Act
+        filter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(jwtService, never()).validateToken(any());
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void testCachedToken_RevokedWithoutEviction() throws Exception {
+        // Arrange: revoked on another replica, and this replica never received the eviction broadcast
+        when(tokenBlacklistService.isTokenBlacklisted(TOKEN)).thenReturn(true);
+
+        // Act
+        filter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNull(verifiedTokenCache.get(TOKEN));
+        verify(filterChain).doFilter(request, response);
+    }
+}
@@ -13,13 +13,18 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import wav.hmed.authentication.controllers.AuthController;
 import wav.hmed.authentication.dto.AuthenticationRequest;
 import wav.hmed.authentication.dto.AuthenticationResponse;
+import wav.hmed.authentication.dto.IntrospectionRequest;
+import wav.hmed.authentication.dto.IntrospectionResponse;
+import wav.hmed.authentication.dto.IntrospectionResult;
 import wav.hmed.authentication.dto.RegisterRequest;
 import wav.hmed.authentication.models.Role;
 import wav.hmed.authentication.models.User;
 import wav.hmed.authentication.repository.UserRepository;
 import wav.hmed.authentication.service.AuthenticationService;
+import wav.hmed.authentication.service.IntrospectionService;
 import wav.hmed.authentication.service.JwtService;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -30,6 +35,8 @@ import static org.mockito.Mockito.*;
 class AuthControllerTest {
     @Mock
     private AuthenticationService authenticationService;
+    @Mock
+    private IntrospectionService introspectionService;
 
     @InjectMocks
     private AuthController authController;
@@ -113,4 +120,54 @@ class AuthControllerTest {
         assertTrue(response.getBody().get("exists"));
         verify(authenticationService).isEmailAlreadyRegistered(email);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testIntrospect_TrustedCaller() {
+        // Arrange
+        IntrospectionRequest request = new IntrospectionRequest(List.of("token-1", "token-2"), List.of("user-1"));
+        IntrospectionResponse mockResponse = IntrospectionResponse.builder()
+                .tokens(List.of(
+                        IntrospectionResult.builder().active(true).revoked(false).userId("user-1").role(Role.USER).build(),
+                        IntrospectionResult.builder().active(false).build()))
+                .users(List.of(IntrospectionResult.builder().active(true).userId("user-1").build()))
+                .build();
+        when(introspectionService.isTrustedCaller("service-key")).thenReturn(true);
+        when(introspectionService.introspect(request)).thenReturn(mockResponse);
+
+        // Act
+        ResponseEntity<?> response = authController.introspect("service-key", request);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(mockResponse, response.getBody());
+        verify(introspectionService).introspect(request);
+    }
+
+    @Test
+    void testIntrospect_RejectsUnknownCaller() {
+        // Arrange
+        IntrospectionRequest request = new IntrospectionRequest(List.of("token-1"), null);
+        when(introspectionService.isTrustedCaller(any())).thenReturn(false);
+
+        // Act
+        ResponseEntity<?> response = authController.introspect("wrong-key", request);
+
+        // Assert
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        verify(introspectionService, never()).introspect(any());
+    }
+
+    @Test
+    void testIntrospect_BatchTooLarge() {
+        // Arrange
+        IntrospectionRequest request = new IntrospectionRequest(List.of("token-1"), null);
+        when(introspectionService.isTrustedCaller("service-key")).thenReturn(true);
+        when(introspectionService.introspect(request)).thenThrow(new IllegalArgumentException("At most 500 tokens and user ids per request"));
+
+        // Act
+        ResponseEntity<?> response = authController.introspect("service-key", request);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+}
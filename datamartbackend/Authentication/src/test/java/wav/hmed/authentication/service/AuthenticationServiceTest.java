@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -14,14 +15,18 @@ import wav.hmed.authentication.controllers.AuthController;
 import wav.hmed.authentication.dto.AuthenticationRequest;
 import wav.hmed.authentication.dto.AuthenticationResponse;
 import wav.hmed.authentication.dto.RegisterRequest;
+import wav.hmed.authentication.models.RefreshToken;
 import wav.hmed.authentication.models.Role;
 import wav.hmed.authentication.models.User;
 import wav.hmed.authentication.repository.UserRepository;
 
+import java.util.Date;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.*;
 
 class AuthenticationServiceTest {
@@ -33,6 +38,20 @@ class AuthenticationServiceTest {
     private JwtService jwtService;
     @Mock
     private AuthenticationManager authenticationManager;
+    @Mock
+    private VerifiedTokenCache verifiedTokenCache;
+    @Mock
+    private UserCache userCache;
+    @Mock
+    private PasswordHashingService passwordHashingService;
+    @Mock
+    private LoginRateLimiter loginRateLimiter;
+    @Mock
+    private RefreshTokenService refreshTokenService;
+    @Mock
+    private EmailPresenceFilter emailPresenceFilter;
+    @Mock
+    private TokenBlacklistService tokenBlacklistService;
 
     @InjectMocks
     private AuthenticationService authService;
@@ -40,6 +59,8 @@ class AuthenticationServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        // Run hashing tasks inline
+        when(passwordHashingService.run(any())).thenAnswer(invocation -> ((Callable<?>) invocation.getArgument(0)).call());
     }
 
     @Test
@@ -55,7 +76,7 @@ class AuthenticationServiceTest {
 
         when(passwordEncoder.encode(request.getPassword())).thenReturn("encoded-password");
         when(userRepository.save(any(User.class))).thenReturn(user);
-        when(jwtService.generateToken(any(User.class))).thenReturn("mock-token");
+        when(jwtService.generateToken(anyMap(), any(User.class))).thenReturn("mock-token");
 
         // Act
         AuthenticationResponse response = authService.register(request);
@@ -77,7 +98,7 @@ class AuthenticationServiceTest {
                 .build();
 
         when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.of(user));
-        when(jwtService.generateToken(any(User.class))).thenReturn("mock-token");
+        when(jwtService.generateToken(anyMap(), any(User.class))).thenReturn("mock-token");
 
         // Act
         AuthenticationResponse response = authService.authenticate(request);
@@ -88,18 +109,57 @@ class AuthenticationServiceTest {
         assertEquals("john@example.com", response.getEmail());
     }
 
+    @Test
+    void testRefresh_IssuesNextTokenInSameFamily() {
+        // Arrange
+        User user = User.builder()
+                .id("user-1")
+                .email("john@example.com")
+                .fullName("John Doe")
+                .build();
+        RefreshToken consumed = RefreshToken.builder()
+                .userId("user-1")
+                .familyId("family-1")
+                .build();
+
+        when(refreshTokenService.consume("refresh-1")).thenReturn(consumed);
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        when(jwtService.generateToken(anyMap(), any(User.class))).thenReturn("mock-token");
+        when(refreshTokenService.issue(user, "family-1")).thenReturn("refresh-2");
+
+        // Act
+        AuthenticationResponse response = authService.refresh("refresh-1");
+
+        // Assert
+        assertEquals("mock-token", response.getToken());
+        assertEquals("refresh-2", response.getRefreshToken());
+    }
+
     @Test
     void testIsEmailAlreadyRegistered() {
         // Arrange
         String email = "john@example.com";
-        when(userRepository.existsByEmail(email)).thenReturn(true);
+        when(emailPresenceFilter.exists(email)).thenReturn(true);
 
         // Act
         boolean exists = authService.isEmailAlreadyRegistered(email);
 
         // Assert
         assertTrue(exists);
-        verify(userRepository).existsByEmail(email);
+        verify(emailPresenceFilter).exists(email);
+    }
+
+    @Test
+    void testRegister_DuplicateEmail() {
+        // Arrange
+        RegisterRequest request = new RegisterRequest("John Doe", "john@example.com", "password123");
+        when(passwordEncoder.encode(request.getPassword())).thenReturn("encoded-password");
+        when(userRepository.save(any(User.class))).thenThrow(new DuplicateKeyException("E11000 duplicate key"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> authService.register(request));
+        verify(userRepository, never()).existsByEmail(any());
+        verify(emailPresenceFilter, never()).registered(any());
     }
 
     @Test
@@ -110,4 +170,21 @@ class AuthenticationServiceTest {
         // Act & Assert (mainly checking no exception is thrown)
         assertDoesNotThrow(() -> authService.logout(token));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetCurrentUserId_CachedTokenRevokedWithoutEviction() {
+        // Arrange: the token is still in this replica's cache, but was revoked elsewhere
+        String token = "cached-token";
+        User user = User.builder()
+                .id("user-1")
+                .email("john@example.com")
+                .build();
+        when(verifiedTokenCache.get(token)).thenReturn(
+                new VerifiedTokenCache.VerifiedToken(user, new Date().getTime() + 60_000));
+        when(tokenBlacklistService.isTokenBlacklisted(token)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> authService.getCurrentUserId(token));
+        verify(verifiedTokenCache).revoke(token);
+    }
+}
@@ -0,0 +1,74 @@
+package wav.hmed.authentication.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import wav.hmed.authentication.exceptions.TooManyRequestsException;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LoginRateLimiterTest {
+    private static final String KEY = "ratelimit:login:account:john@example.com";
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    private LoginRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        rateLimiter = new LoginRateLimiter(redisTemplate, new SimpleMeterRegistry(), 30, 10, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void testCheckLogin_CountsAndExpiresInOneCall() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any())).thenReturn(List.of(1L, 60_000L));
+
+        // Act
+        assertDoesNotThrow(() -> rateLimiter.checkLogin("John@Example.com"));
+
+        // Assert: the window travels with the increment, so the counter cannot be left without a TTL
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(KEY)), eq("60000"));
+        verify(redisTemplate, never()).opsForValue();
+        verify(redisTemplate, never()).expire(anyString(), anyLong(), any());
+    }
+
+    @Test
+    void testCheckLogin_OverLimit() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any())).thenReturn(List.of(11L, 42_500L));
+
+        // Act
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> rateLimiter.checkLogin("john@example.com"));
+
+        // Assert
+        assertEquals(43, e.getRetryAfterSeconds());
+    }
+
+    @Test
+    void testCheckLogin_RedisUnavailable() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        // Act & Assert
+        assertDoesNotThrow(() -> rateLimiter.checkLogin("john@example.com"));
+    }
+}
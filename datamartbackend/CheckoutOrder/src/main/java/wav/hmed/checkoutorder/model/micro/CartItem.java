@@ -1,6 +1,7 @@
 package wav.hmed.checkoutorder.model.micro;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -17,4 +18,16 @@ public class CartItem {
     private Integer discount;
     private String brandName;
     private Double subtotal;
+    // Discounted unit price in cents, fixed by ProductsCrud when the item was added to the cart
+    private Long unitPriceCents;
+
+    // What to charge per unit; carts written before unitPriceCents existed use ProductsCrud's rounding
+    @JsonIgnore
+    public long getChargeCents() {
+        if (unitPriceCents != null) {
+            return unitPriceCents;
+        }
+        int percent = discount != null ? Math.min(Math.max(discount, 0), 100) : 0;
+        return Math.floorDiv(Math.round(price * 100) * (100 - percent) + 50, 100);
+    }
 }
\ No newline at end of file
@@ -32,9 +32,14 @@ public class Product {
     private Boolean clearance;
     private Integer discount;
     private Integer stock;
+    private Long priceCents;
+    private Long finalPriceCents;
 
     // Helper method to calculate final price considering discount
     public Double getFinalPrice() {
+        if (finalPriceCents != null) {
+            return finalPriceCents / 100.0;
+        }
         if (discount != null && discount > 0) {
             return price - (price * discount / 100.0);
         }
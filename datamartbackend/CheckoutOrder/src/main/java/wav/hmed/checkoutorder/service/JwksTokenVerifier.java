@@ -0,0 +1,124 @@
+package wav.hmed.checkoutorder.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Verifies RS256 access tokens locally against the Authentication service's published key set. The keys
+ * are cached and refetched when they are older than {@code services.authentication.jwks-max-age}, or when a token names a key
+ * that is not cached yet (at most every few seconds, so bogus kids cannot hammer the auth service). When
+ * the key set cannot be fetched the last good one is kept.
+ */
+@Service
+@Slf4j
+public class JwksTokenVerifier {
+    private static final long MIN_REFETCH_INTERVAL_MS = 10_000;
+
+    private final RestTemplate restTemplate;
+    private final String jwksUrl;
+    private final Duration maxAge;
+    private final JwtParser parser;
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private volatile long fetchedAt;
+    private volatile long lastAttempt;
+
+    public JwksTokenVerifier(RestTemplate restTemplate,
+                             @Value("${services.authentication.jwks-url}") String jwksUrl,
+                             @Value("${services.authentication.jwks-max-age:PT10M}") Duration maxAge) {
+        this.restTemplate = restTemplate;
+        this.jwksUrl = jwksUrl;
+        this.maxAge = maxAge;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        if (!"RS256".equals(header.getAlgorithm())) {
+                            throw new UnsupportedJwtException("Not verifiable locally: " + header.getAlgorithm());
+                        }
+                        PublicKey key = key(header.getKeyId());
+                        if (key == null) {
+                            throw new UnsupportedJwtException("Unknown signing key: " + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Claims of a valid token, or empty when it cannot be checked here (legacy HS256 token, or its key is
+     * unavailable) and the caller should ask the auth service instead. Throws {@link JwtException} when the
+     * token is expired, tampered with or malformed.
+     */
+    public Optional<Claims> verify(String token) {
+        try {
+            return Optional.of(parser.parseClaimsJws(token).getBody());
+        } catch (UnsupportedJwtException e) {
+            return Optional.empty();
+        }
+    }
+
+    private PublicKey key(String kid) {
+        long now = System.currentTimeMillis();
+        PublicKey key = keys.get(kid);
+        boolean stale = now - fetchedAt > maxAge.toMillis();
+        if ((key == null || stale) && now - lastAttempt > MIN_REFETCH_INTERVAL_MS) {
+            refresh();
+            key = keys.get(kid);
+        }
+        return key;
+    }
+
+    private synchronized void refresh() {
+        if (System.currentTimeMillis() - lastAttempt <= MIN_REFETCH_INTERVAL_MS) {
+            return; // Another thread just refreshed
+        }
+        lastAttempt = System.currentTimeMillis();
+        try {
+            Map<?, ?> body = restTemplate.getForObject(jwksUrl, Map.class);
+            Map<String, PublicKey> loaded = new HashMap<>();
+            if (body != null && body.get("keys") instanceof List<?> jwks) {
+                for (Object entry : jwks) {
+                    if (entry instanceof Map<?, ?> jwk && "RSA".equals(jwk.get("kty"))) {
+                        loaded.put(String.valueOf(jwk.get("kid")), rsaKey(jwk));
+                    }
+                }
+            }
+            keys = Map.copyOf(loaded);
+            fetchedAt = lastAttempt;
+            log.info("Loaded {} token signing keys", loaded.size());
+        } catch (RestClientException | GeneralSecurityException | IllegalArgumentException e) {
+            log.warn("Could not refresh token signing keys, keeping {} cached: {}", keys.size(), e.getMessage());
+        }
+    }
+
+    private static PublicKey rsaKey(Map<?, ?> jwk) throws GeneralSecurityException {
+        BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(String.valueOf(jwk.get("n"))));
+        BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(String.valueOf(jwk.get("e"))));
+        return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(modulus, exponent));
+    }
+}
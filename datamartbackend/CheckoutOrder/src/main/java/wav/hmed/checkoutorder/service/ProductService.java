@@ -3,6 +3,7 @@ package wav.hmed.checkoutorder.service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
@@ -14,6 +15,7 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 import wav.hmed.checkoutorder.model.micro.Product;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -112,6 +114,31 @@ public class ProductService {
         }
     }
 
+    // Current unit prices in cents by product id; products that no longer exist are missing from the map
+    @Retryable(
+            value = { RuntimeException.class },
+            maxAttempts = 3,
+            backoff = @Backoff(delay = 1000))
+    public Map<String, Long> getCurrentUnitPrices(List<String> productIds) {
+        try {
+            HttpEntity<List<String>> entity = new HttpEntity<>(productIds, createHeaders());
+            ResponseEntity<Map<String, Number>> response = restTemplate.exchange(
+                    productServiceUrl + "/products/unit-prices",
+                    HttpMethod.POST,
+                    entity,
+                    new ParameterizedTypeReference<Map<String, Number>>() {}
+            );
+            Map<String, Long> prices = new HashMap<>();
+            if (response.getBody() != null) {
+                response.getBody().forEach((id, cents) -> prices.put(id, cents.longValue()));
+            }
+            return prices;
+        } catch (HttpClientErrorException | HttpServerErrorException e) {
+            log.error("Error fetching current prices for products: {}", productIds, e);
+            throw new RuntimeException("Failed to fetch current product prices", e);
+        }
+    }
+
     private HttpHeaders createHeaders() {
         log.debug("Creating HTTP headers");
         HttpHeaders headers = new HttpHeaders();
@@ -57,6 +57,7 @@ public class StripeCheckoutService {
 
         // Validate and update the existing order
         validateProductAvailability(cartItems);
+        applyCurrentPrices(cartItems);
 
         // Update order details if necessary
         order.setItems(cartItems);
@@ -107,6 +108,22 @@ public class StripeCheckoutService {
         }
     }
 
+    // Cart lines keep the price from when they were added; charge what the product costs now
+    private void applyCurrentPrices(List<CartItem> cartItems) {
+        Map<String, Long> prices = productService.getCurrentUnitPrices(
+                cartItems.stream().map(CartItem::getProductId).toList());
+        for (CartItem item : cartItems) {
+            Long current = prices.get(item.getProductId());
+            if (current == null) {
+                throw new RuntimeException("Product " + item.getName() + " is no longer available");
+            }
+            if (!current.equals(item.getUnitPriceCents())) {
+                log.info("Repricing {} from {} to {} cents", item.getProductId(), item.getUnitPriceCents(), current);
+                item.setUnitPriceCents(current);
+            }
+        }
+    }
+
     private Order createOrder(String userId, List<CartItem> cartItems) {
         Order order = new Order();
         order.setUserId(userId);
@@ -140,7 +157,7 @@ public class StripeCheckoutService {
                 .setPriceData(
                         SessionCreateParams.LineItem.PriceData.builder()
                                 .setCurrency("usd")
-                                .setUnitAmount((long) (item.getPrice() * 100)) // Convert to cents
+                                .setUnitAmount(item.getChargeCents()) // Discounted, already in cents
                                 .setProductData(
                                         SessionCreateParams.LineItem.PriceData.ProductData.builder()
                                                 .setName(item.getName())
@@ -152,9 +169,10 @@ public class StripeCheckoutService {
     }
 
     private Double calculateTotal(List<CartItem> items) {
-        return items.stream()
-                .mapToDouble(item -> item.getPrice() * item.getQuantity())
+        long cents = items.stream()
+                .mapToLong(item -> item.getChargeCents() * item.getQuantity())
                 .sum();
+        return cents / 100.0;
     }
 
     @Transactional
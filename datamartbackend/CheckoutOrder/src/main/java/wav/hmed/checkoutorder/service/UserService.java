@@ -3,6 +3,7 @@ package wav.hmed.checkoutorder.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,8 +25,26 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class UserService {
     private final RestTemplate restTemplate;
+    private final JwksTokenVerifier jwksTokenVerifier;
 
     public User getUserFromAuthentication(String authHeader) {
+        // Tokens carrying a user id are verified locally; older ones still go through the auth service
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String userId;
+            try {
+                userId = jwksTokenVerifier.verify(authHeader.substring(7))
+                        .map(claims -> claims.get("uid", String.class))
+                        .orElse(null);
+            } catch (JwtException e) {
+                throw new RuntimeException("Invalid or expired token", e);
+            }
+            if (userId != null) {
+                User user = new User();
+                user.setId(userId);
+                return user;
+            }
+        }
+
         try {
             log.info("Attempting to retrieve user with header: {}", authHeader);
 
@@ -0,0 +1,38 @@
+package wav.hmed.checkoutorder.model.micro;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartItemTest {
+
+    @Test
+    void testGetChargeCents_UsesStoredUnitPrice() {
+        // Arrange
+        CartItem item = new CartItem();
+        item.setPrice(19.99);
+        item.setDiscount(25);
+        item.setUnitPriceCents(1234L);
+
+        // Act & Assert
+        assertEquals(1234L, item.getChargeCents());
+    }
+
+    @Test
+    void testGetChargeCents_LegacyLineRoundsLikeProductsCrud() {
+        // Arrange: lines written before unitPriceCents existed
+        CartItem item = new CartItem();
+        item.setPrice(1.50);
+        item.setDiscount(1);
+
+        // Act & Assert: 150 * 0.99 = 148.5 rounds half-up
+        assertEquals(149L, item.getChargeCents());
+
+        item.setPrice(19.99);
+        item.setDiscount(null);
+        assertEquals(1999L, item.getChargeCents());
+
+        item.setDiscount(150);
+        assertEquals(0L, item.getChargeCents());
+    }
+}
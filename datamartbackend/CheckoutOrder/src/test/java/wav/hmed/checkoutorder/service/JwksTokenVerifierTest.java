@@ -0,0 +1,158 @@
+package wav.hmed.checkoutorder.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class JwksTokenVerifierTest {
+    private static final String JWKS_URL = "http://auth.test/api/v1/auth/.well-known/jwks.json";
+    private static final String KID = "rsa-1";
+
+    private static KeyPair signingKeys;
+    private static KeyPair otherKeys;
+
+    private JwksTokenVerifier verifier;
+    private MockRestServiceServer authService;
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        signingKeys = generator.generateKeyPair();
+        otherKeys = generator.generateKeyPair();
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        authService = MockRestServiceServer.bindTo(restTemplate).build();
+        verifier = new JwksTokenVerifier(restTemplate, JWKS_URL, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void testVerify_ValidRs256Token() {
+        // Arrange
+        expectJwks();
+        String token = rs256(KID, signingKeys.getPrivate(), "john@example.com", 60_000);
+
+        // Act
+        Optional<Claims> claims = verifier.verify(token);
+
+        // Assert
+        assertTrue(claims.isPresent());
+        assertEquals("john@example.com", claims.get().getSubject());
+        authService.verify();
+    }
+
+    @Test
+    void testVerify_Hs256TokenFallsBackToAuthService() {
+        // Arrange
+        Key secret = Keys.hmacShaKeyFor("a-legacy-hs256-secret-of-32-bytes!".getBytes(StandardCharsets.UTF_8));
+        String token = Jwts.builder()
+                .setSubject("john@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(secret, SignatureAlgorithm.HS256)
+                .compact();
+
+        // Act
+        Optional<Claims> claims = verifier.verify(token);
+
+        // Assert: no key set is fetched for a token that cannot be checked locally
+        assertTrue(claims.isEmpty());
+        authService.verify();
+    }
+
+    @Test
+    void testVerify_UnknownKidFallsBackWithoutRefetchingEveryTime() {
+        // Arrange
+        expectJwks();
+        String token = rs256("rsa-unknown", otherKeys.getPrivate(), "john@example.com", 60_000);
+
+        // Act
+        Optional<Claims> first = verifier.verify(token);
+        Optional<Claims> second = verifier.verify(token);
+
+        // Assert: one fetch for the miss, none for the repeat within the refetch interval
+        assertTrue(first.isEmpty());
+        assertTrue(second.isEmpty());
+        authService.verify();
+    }
+
+    @Test
+    void testVerify_TamperedPayloadIsRejected() {
+        // Arrange: another subject's payload under the original signature
+        expectJwks();
+        String[] original = rs256(KID, signingKeys.getPrivate(), "john@example.com", 60_000).split("\\.");
+        String[] forged = rs256(KID, signingKeys.getPrivate(), "admin@example.com", 60_000).split("\\.");
+        String token = original[0] + "." + forged[1] + "." + original[2];
+
+        // Act & Assert
+        assertThrows(JwtException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void testVerify_ForeignKeyUnderKnownKidIsRejected() {
+        // Arrange
+        expectJwks();
+        String token = rs256(KID, otherKeys.getPrivate(), "john@example.com", 60_000);
+
+        // Act & Assert
+        assertThrows(JwtException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void testVerify_ExpiredTokenIsRejected() {
+        // Arrange
+        expectJwks();
+        String token = rs256(KID, signingKeys.getPrivate(), "john@example.com", -60_000);
+
+        // Act & Assert
+        assertThrows(JwtException.class, () -> verifier.verify(token));
+    }
+
+    private void expectJwks() {
+        RSAPublicKey publicKey = (RSAPublicKey) signingKeys.getPublic();
+        String jwks = """
+                {"keys":[{"kty":"RSA","use":"sig","alg":"RS256","kid":"%s","n":"%s","e":"%s"}]}
+                """.formatted(KID, base64Url(publicKey.getModulus().toByteArray()),
+                base64Url(publicKey.getPublicExponent().toByteArray()));
+        authService.expect(ExpectedCount.once(), requestTo(JWKS_URL))
+                .andRespond(withSuccess(jwks, MediaType.APPLICATION_JSON));
+    }
+
+    private static String rs256(String kid, Key privateKey, String subject, long expiresInMillis) {
+        return Jwts.builder()
+                .setHeaderParam("kid", kid)
+                .setSubject(subject)
+                .setExpiration(new Date(System.currentTimeMillis() + expiresInMillis))
+                .signWith(privateKey, SignatureAlgorithm.RS256)
+                .compact();
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
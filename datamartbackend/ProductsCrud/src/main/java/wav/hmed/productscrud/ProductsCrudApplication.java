@@ -3,12 +3,14 @@ package wav.hmed.productscrud;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
 @PropertySource("file:.env")
 @EnableScheduling
+@EnableAsync
 public class ProductsCrudApplication {
 
     public static void main(String[] args) {
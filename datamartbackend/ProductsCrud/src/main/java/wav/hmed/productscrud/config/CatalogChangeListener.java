@@ -0,0 +1,32 @@
+package wav.hmed.productscrud.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+import wav.hmed.productscrud.service.CatalogVersionService;
+
+// Bumps the catalog version for every repository save/delete, including Spring Data REST writes.
+// Updates issued through MongoTemplate do not raise these events and bump explicitly.
+@Component
+@RequiredArgsConstructor
+public class CatalogChangeListener extends AbstractMongoEventListener<Object> {
+    private final CatalogVersionService catalogVersionService;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        bumpIfTracked(event.getCollectionName());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        bumpIfTracked(event.getCollectionName());
+    }
+
+    private void bumpIfTracked(String collection) {
+        if (catalogVersionService.isTracked(collection)) {
+            catalogVersionService.bump(collection);
+        }
+    }
+}
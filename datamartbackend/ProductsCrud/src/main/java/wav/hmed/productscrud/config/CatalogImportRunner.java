@@ -0,0 +1,67 @@
+package wav.hmed.productscrud.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import wav.hmed.productscrud.model.ImportReport;
+import wav.hmed.productscrud.service.CatalogImportService;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command-line import, e.g.
+ * {@code java -jar ProductsCrud.jar --catalog.import.file=feed.ndjson --catalog.import.type=products
+ * --spring.main.web-application-type=none}. The format follows the file extension (.csv, .ndjson, .jsonl).
+ */
+@Component
+@ConditionalOnProperty(name = "catalog.import.file")
+public class CatalogImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LogManager.getLogger(CatalogImportRunner.class);
+
+    private final CatalogImportService catalogImportService;
+    private final ApplicationContext context;
+
+    @Value("${catalog.import.file}")
+    private Path file;
+
+    @Value("${catalog.import.type:products}")
+    private String type;
+
+    @Value("${catalog.import.upsert:true}")
+    private boolean upsert;
+
+    // Stop the application once the import is done (exit code 1 if any row failed)
+    @Value("${catalog.import.exit-after:true}")
+    private boolean exitAfter;
+
+    public CatalogImportRunner(CatalogImportService catalogImportService, ApplicationContext context) {
+        this.catalogImportService = catalogImportService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String name = file.getFileName().toString();
+        String format = name.substring(name.lastIndexOf('.') + 1);
+
+        ImportReport report;
+        try (InputStream input = Files.newInputStream(file)) {
+            report = catalogImportService.importCatalog(type, format, upsert, null, input);
+        }
+        report.getErrors().forEach(error -> log.warn("{}:{} {}", name, error.getLine(), error.getMessage()));
+
+        if (exitAfter) {
+            int exitCode = SpringApplication.exit(context, () -> report.getFailed() > 0 ? 1 : 0);
+            System.exit(exitCode);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package wav.hmed.productscrud.config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 
 import java.time.Instant;
@@ -11,6 +12,7 @@ import java.time.ZoneId;
 import java.util.Arrays;
 
 @Configuration
+@EnableMongoAuditing
 public class MongoConfig {
     @Bean
     public MongoCustomConversions customConversions() {
@@ -20,15 +22,18 @@ public class MongoConfig {
     }
 
     private static class StringToInstantConverter implements Converter<String, Instant> {
+        // Plain dates (yyyy-MM-dd) are told apart by length instead of by a failed Instant.parse,
+        // which made every such value pay for an exception (noticeable on bulk imports)
+        private static final int ISO_DATE_LENGTH = 10;
+
         @Override
         public Instant convert(String source) {
-            try {
-                return Instant.parse(source);
-            } catch (Exception e) {
+            if (source.length() == ISO_DATE_LENGTH) {
                 return LocalDate.parse(source)
                         .atStartOfDay(ZoneId.systemDefault())
                         .toInstant();
             }
+            return Instant.parse(source);
         }
     }
 }
\ No newline at end of file
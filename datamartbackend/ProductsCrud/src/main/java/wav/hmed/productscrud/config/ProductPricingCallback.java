@@ -0,0 +1,21 @@
+package wav.hmed.productscrud.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+import wav.hmed.productscrud.model.Product;
+import wav.hmed.productscrud.service.PricingService;
+
+// Stores the cent prices on every whole-document product save, including Spring Data REST writes.
+// Updates issued through MongoTemplate do not pass through here and reprice explicitly.
+@Component
+@RequiredArgsConstructor
+public class ProductPricingCallback implements BeforeConvertCallback<Product> {
+    private final PricingService pricingService;
+
+    @Override
+    public Product onBeforeConvert(Product product, String collection) {
+        pricingService.apply(product);
+        return product;
+    }
+}
@@ -3,13 +3,15 @@ package wav.hmed.productscrud.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import wav.hmed.productscrud.model.Brand;
+import wav.hmed.productscrud.model.CatalogSnapshot;
 import wav.hmed.productscrud.service.BrandService;
-
-import java.util.List;
-import java.util.Optional;
+import wav.hmed.productscrud.service.CatalogSnapshotService;
+import wav.hmed.productscrud.service.CatalogVersionService;
 
 @RestController
 @RequestMapping("/api/brands")
@@ -18,16 +20,32 @@ public class BrandController {
     @Autowired
     private BrandService brandService;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    // Served from the in-memory snapshot: no database round trip and no per-request serialization
     @GetMapping
-    public ResponseEntity<List<Brand>> getAllBrands() {
-        List<Brand> brands = brandService.getAllBrands();
-        return new ResponseEntity<>(brands, HttpStatus.OK);
+    public ResponseEntity<byte[]> getAllBrands(WebRequest request) {
+        CatalogSnapshot<Brand> snapshot = catalogSnapshotService.brands();
+        if (catalogVersionService.checkNotModified(request, snapshot.getVersion())) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getListJson());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Brand> getBrandById(@PathVariable String id) {
-        Optional<Brand> brand = brandService.getBrandById(id);
-        return brand.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+    public ResponseEntity<byte[]> getBrandById(@PathVariable String id, WebRequest request) {
+        CatalogSnapshot<Brand> snapshot = catalogSnapshotService.brands();
+        if (catalogVersionService.checkNotModified(request, snapshot.getVersion())) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        return snapshot.findJson(id)
+                .map(json -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
@@ -3,13 +3,16 @@ package wav.hmed.productscrud.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import wav.hmed.productscrud.model.CatalogSnapshot;
 import wav.hmed.productscrud.model.Category;
+import wav.hmed.productscrud.service.CatalogSnapshotService;
+import wav.hmed.productscrud.service.CatalogVersionService;
 import wav.hmed.productscrud.service.CategoryService;
 
-import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/categories")
@@ -18,16 +21,32 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    // Served from the in-memory snapshot: no database round trip and no per-request serialization
     @GetMapping
-    public ResponseEntity<List<Category>> getAllCategories() {
-        List<Category> categories = categoryService.getAllCategories();
-        return new ResponseEntity<>(categories, HttpStatus.OK);
+    public ResponseEntity<byte[]> getAllCategories(WebRequest request) {
+        CatalogSnapshot<Category> snapshot = catalogSnapshotService.categories();
+        if (catalogVersionService.checkNotModified(request, snapshot.getVersion())) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getListJson());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategoryById(@PathVariable String id) {
-        Optional<Category> category = categoryService.getCategoryById(id);
-        return category.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+    public ResponseEntity<byte[]> getCategoryById(@PathVariable String id, WebRequest request) {
+        CatalogSnapshot<Category> snapshot = catalogSnapshotService.categories();
+        if (catalogVersionService.checkNotModified(request, snapshot.getVersion())) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        return snapshot.findJson(id)
+                .map(json -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
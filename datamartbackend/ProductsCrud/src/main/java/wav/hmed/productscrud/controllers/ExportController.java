@@ -0,0 +1,53 @@
+package wav.hmed.productscrud.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import wav.hmed.productscrud.service.CatalogExportService;
+
+import java.time.Instant;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    /**
+     * e.g. /api/export/products?format=ndjson&gzip=true&since=1718000000000. The response carries an
+     * X-Change-Token header to pass as {@code since} on the next run.
+     */
+    @GetMapping("/{type}")
+    public ResponseEntity<?> exportCatalog(@PathVariable String type,
+                                           @RequestParam(defaultValue = "ndjson") String format,
+                                           @RequestParam(defaultValue = "false") boolean gzip,
+                                           @RequestParam(required = false) Instant postedSince,
+                                           @RequestParam(required = false) String since) {
+        try {
+            // Issued before reading, so the next run picks up anything written while this one streams
+            String changeToken = catalogExportService.newChangeToken();
+            Instant changedSince = since != null ? catalogExportService.parseChangeToken(since) : null;
+            StreamingResponseBody body = catalogExportService.export(type, format, gzip, postedSince, changedSince);
+            boolean csv = catalogExportService.isCsv(format);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(csv ? new MediaType("text", "csv") : MediaType.parseMediaType("application/x-ndjson"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"" + type + (csv ? ".csv\"" : ".ndjson\""))
+                    .header("X-Change-Token", changeToken);
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return response.body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+}
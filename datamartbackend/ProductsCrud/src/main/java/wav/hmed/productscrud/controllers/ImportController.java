@@ -0,0 +1,35 @@
+package wav.hmed.productscrud.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import wav.hmed.productscrud.model.ImportReport;
+import wav.hmed.productscrud.service.CatalogImportService;
+
+import java.io.InputStream;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    // e.g. curl -X POST --data-binary @feed.csv "localhost:8082/api/import/products?format=csv&upsert=true"
+    @PostMapping("/{type}")
+    public ResponseEntity<?> importCatalog(@PathVariable String type,
+                                           @RequestParam(defaultValue = "csv") String format,
+                                           @RequestParam(defaultValue = "false") boolean upsert,
+                                           @RequestParam(required = false) Integer batchSize,
+                                           InputStream body) {
+        try {
+            ImportReport report = catalogImportService.importCatalog(type, format, upsert, batchSize, body);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package wav.hmed.productscrud.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import wav.hmed.productscrud.model.LeaderboardWindow;
+import wav.hmed.productscrud.service.LeaderboardService;
+
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/leaderboard")
+public class LeaderboardController {
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    // e.g. /api/leaderboard/7d?category=electronics&limit=8
+    @GetMapping("/{window}")
+    public ResponseEntity<?> getTopSellers(@PathVariable String window,
+                                           @RequestParam(required = false) String category,
+                                           @RequestParam(required = false) String brand,
+                                           @RequestParam(defaultValue = "10") int limit) {
+        Optional<LeaderboardWindow> leaderboardWindow = LeaderboardWindow.fromPath(window);
+        if (leaderboardWindow.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", "Unknown window. Use all-time, 24h or 7d."));
+        }
+        if (category != null && brand != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", "Filter by category or by brand, not both."));
+        }
+        return ResponseEntity.ok(leaderboardService.getTop(leaderboardWindow.get(), category, brand, limit));
+    }
+}
@@ -0,0 +1,56 @@
+package wav.hmed.productscrud.controllers;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import wav.hmed.productscrud.model.ProductMembership;
+import wav.hmed.productscrud.service.CartService;
+import wav.hmed.productscrud.service.UserService;
+import wav.hmed.productscrud.service.WishlistService;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Wishlist and cart badges for a whole product grid in one request: the user is resolved once
+ * and each store is read once, instead of one auth call and one lookup per tile.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/membership")
+@RequiredArgsConstructor
+public class MembershipController {
+    private static final int MAX_PRODUCT_IDS = 200;
+
+    private final WishlistService wishlistService;
+    private final CartService cartService;
+    private final UserService userService;
+
+    @PostMapping
+    public ResponseEntity<?> getMembership(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestBody List<String> productIds) {
+        if (productIds.size() > MAX_PRODUCT_IDS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", "At most " + MAX_PRODUCT_IDS + " product ids per request"));
+        }
+
+        String userId = userService.getCurrentUserId(authHeader);
+        log.debug("POST /api/membership - {} products for user: {}", productIds.size(), userId);
+
+        Map<String, Boolean> wishlisted = wishlistService.checkWishlist(userId, productIds);
+        Set<String> inCart = cartService.getCartProductIds(userId);
+
+        Map<String, ProductMembership> membership = new LinkedHashMap<>();
+        for (String productId : productIds) {
+            membership.put(productId, new ProductMembership(
+                    wishlisted.getOrDefault(productId, false),
+                    inCart.contains(productId)));
+        }
+        return ResponseEntity.ok(membership);
+    }
+}
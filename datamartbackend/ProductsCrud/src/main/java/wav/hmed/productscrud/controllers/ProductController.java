@@ -3,10 +3,16 @@ package wav.hmed.productscrud.controllers;
 
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import wav.hmed.productscrud.model.Product;
+import wav.hmed.productscrud.model.ProductView;
+import wav.hmed.productscrud.model.RatingSubmission;
+import wav.hmed.productscrud.service.CatalogVersionService;
+import wav.hmed.productscrud.service.PricingService;
 import wav.hmed.productscrud.service.ProductService;
 
 import java.util.HashMap;
@@ -21,13 +27,25 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private PricingService pricingService;
+
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<List<ProductView>> getAllProducts(WebRequest request) {
+        if (catalogVersionService.checkNotModified(request, CatalogVersionService.PRODUCTS)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        return ResponseEntity.ok(toViews(productService.getAllProducts()));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductById(@PathVariable String id) {
+    public ResponseEntity<?> getProductById(@PathVariable String id, WebRequest request) {
+        if (catalogVersionService.checkNotModified(request, CatalogVersionService.PRODUCTS)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         try {
             Product product = productService.getProductById(id);
             return ResponseEntity.ok(product);
@@ -47,7 +65,10 @@ public class ProductController {
      // http://localhost:8082/api/products/get-by-name?name=Fitness%2520Tracking%2520Ring
 
     @GetMapping("/get-by-name")
-    public ResponseEntity<Product> getProductByName(@RequestParam String name) {
+    public ResponseEntity<Product> getProductByName(@RequestParam String name, WebRequest request) {
+        if (catalogVersionService.checkNotModified(request, CatalogVersionService.PRODUCTS)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
         try {
             Product product = productService.getProductByName(name);
             return ResponseEntity.ok(product);
@@ -77,8 +98,36 @@ public class ProductController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String term) {
-        return ResponseEntity.ok(productService.searchProducts(term));
+    public ResponseEntity<List<ProductView>> searchProducts(@RequestParam String term, WebRequest request) {
+        if (catalogVersionService.checkNotModified(request, CatalogVersionService.PRODUCTS)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        return ResponseEntity.ok(toViews(productService.searchProducts(term)));
+    }
+
+    // Filtered and sorted by the stored discounted price, e.g. /price-range?min=10&max=50&sort=desc
+    @GetMapping("/price-range")
+    public ResponseEntity<?> getProductsByPriceRange(@RequestParam(required = false) Double min,
+                                                     @RequestParam(required = false) Double max,
+                                                     @RequestParam(defaultValue = "asc") String sort,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam(defaultValue = "24") int size,
+                                                     WebRequest request) {
+        if (catalogVersionService.checkNotModified(request, CatalogVersionService.PRODUCTS)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        try {
+            Sort.Direction direction = Sort.Direction.fromString(sort);
+            return ResponseEntity.ok(toViews(pricingService.findByPriceRange(min, max, direction, page, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Current unit prices in cents, so checkout charges today's price rather than the one stored in the cart
+    @PostMapping("/unit-prices")
+    public ResponseEntity<Map<String, Long>> getUnitPrices(@RequestBody List<String> productIds) {
+        return ResponseEntity.ok(pricingService.currentUnitPrices(productIds));
     }
 
     @PostMapping("/validate-availability")
@@ -144,6 +193,16 @@ public class ProductController {
         }
     }
 
+    @PostMapping("/ratings/batch")
+    public ResponseEntity<?> rateProducts(@RequestBody List<RatingSubmission> ratings) {
+        try {
+            return ResponseEntity.ok(productService.ingestRatings(ratings));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Error ingesting ratings: " + e.getMessage()));
+        }
+    }
+
 
     @PostMapping("/{productId}/increment-purchase")
     public ResponseEntity<?> incrementPurchaseCount(@PathVariable String productId, @RequestBody Map<String, Object> request) {
@@ -164,9 +223,7 @@ public class ProductController {
         }
     }
 
+    private static List<ProductView> toViews(List<Product> products) {
+        return products.stream().map(ProductView::new).toList();
+    }
 }
-
-
-
-
-
@@ -10,6 +10,9 @@ import wav.hmed.productscrud.model.Wishlist;
 import wav.hmed.productscrud.service.UserService;
 import wav.hmed.productscrud.service.WishlistService;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/wishlist")
 @RequiredArgsConstructor
@@ -57,6 +60,15 @@ public class WishlistController {
         return ResponseEntity.ok(isInWishlist);
     }
 
+    // Batched form of /check/{productId} for product grids: one call for every visible tile
+    @PostMapping("/check")
+    public ResponseEntity<Map<String, Boolean>> checkWishlist(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestBody List<String> productIds) {
+        String userId = userService.getCurrentUserId(authHeader);
+        return ResponseEntity.ok(wishlistService.checkWishlist(userId, productIds));
+    }
+
     @DeleteMapping("/clear")
     public ResponseEntity<Void> clearWishlist(
             @RequestHeader("Authorization") String authHeader) {
@@ -10,6 +10,7 @@ import java.util.List;
 
 @Document(collection = "brands")
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class Brand {
     // Getters and setters
@@ -24,7 +24,16 @@ public class Cart {
 
     private String userId;
     private List<CartItem> items;
-    private Double totalAmount;
     private Integer loyaltyPoints;
     private Date lastModified;
+
+    // Derived from the lines on read (summed in cents); items are mutated with update operators, so no stored total
+    public Double getTotalAmount() {
+        if (items == null) {
+            return 0.0;
+        }
+        return Pricing.toAmount(items.stream()
+                .mapToLong(CartItem::subtotalCents)
+                .sum());
+    }
 }
\ No newline at end of file
@@ -15,6 +15,21 @@ public class CartItem {
     private String image;
     private Integer discount;
     private String brandName;
-    // Added for easier cart calculations
-    private Double subtotal;
-}
\ No newline at end of file
+    // Discounted unit price captured when the line was added; older lines fall back to price and discount
+    private Long unitPriceCents;
+
+    // Derived on read so concurrent quantity updates never leave a stale stored subtotal
+    public Double getSubtotal() {
+        return Pricing.toAmount(subtotalCents());
+    }
+
+    long subtotalCents() {
+        if (quantity == null) {
+            return 0;
+        }
+        Long unit = unitPriceCents != null
+                ? unitPriceCents
+                : Pricing.discountedCents(Pricing.toCents(price), discount);
+        return unit != null ? unit * quantity : 0;
+    }
+}
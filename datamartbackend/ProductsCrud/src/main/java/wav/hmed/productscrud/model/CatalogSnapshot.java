@@ -0,0 +1,30 @@
+package wav.hmed.productscrud.model;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable view of a small catalog collection (brands or categories) as of one catalog version,
+ * together with its JSON encodings so that responses can be written without serializing again.
+ */
+@Getter
+public class CatalogSnapshot<T> {
+    private final CatalogVersion version;
+    private final List<T> items;
+    private final byte[] listJson;
+    private final Map<String, byte[]> itemJson;
+
+    public CatalogSnapshot(CatalogVersion version, List<T> items, byte[] listJson, Map<String, byte[]> itemJson) {
+        this.version = version;
+        this.items = List.copyOf(items);
+        this.listJson = listJson;
+        this.itemJson = Map.copyOf(itemJson);
+    }
+
+    public Optional<byte[]> findJson(String id) {
+        return Optional.ofNullable(itemJson.get(id));
+    }
+}
@@ -0,0 +1,26 @@
+package wav.hmed.productscrud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = "catalog_versions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogVersion {
+    // Name of the tracked collection (products, brands, categories)
+    @Id
+    private String id;
+    private long version;
+    private Instant lastModified;
+
+    // Weak validator: the same version covers gzip and identity encodings
+    public String toETag() {
+        return "W/\"" + id + "-" + version + "\"";
+    }
+}
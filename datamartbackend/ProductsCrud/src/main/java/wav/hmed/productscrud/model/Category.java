@@ -3,11 +3,13 @@ package wav.hmed.productscrud.model;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "categories")
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class Category {
     @Id
@@ -0,0 +1,42 @@
+package wav.hmed.productscrud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ImportReport {
+    // Only the first errors are listed; failed still counts all of them
+    private static final int MAX_LISTED_ERRORS = 1000;
+
+    private String type;
+    private long rowsRead;
+    private long inserted;
+    private long updated;
+    private long failed;
+    private long durationMs;
+    private List<RowError> errors = new ArrayList<>();
+
+    public ImportReport(String type) {
+        this.type = type;
+    }
+
+    public void addError(long line, String message) {
+        failed++;
+        if (errors.size() < MAX_LISTED_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
@@ -0,0 +1,22 @@
+package wav.hmed.productscrud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = "job_locks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobLock {
+    // Name of the scheduled job
+    @Id
+    private String id;
+    private String lockedBy;
+    private Instant lockedAt;
+    private Instant lockedUntil;
+}
@@ -0,0 +1,15 @@
+package wav.hmed.productscrud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardEntry {
+    private int rank;
+    // Units sold (all-time) or decayed units sold as of now (24h / 7d)
+    private double score;
+    private Product product;
+}
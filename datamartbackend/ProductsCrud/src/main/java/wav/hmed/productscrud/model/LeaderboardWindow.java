@@ -0,0 +1,40 @@
+package wav.hmed.productscrud.model;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Ranking windows. The rolling windows use exponentially decayed scores whose half-life is a quarter
+ * of the window, so a sale from one window ago counts for 1/16 of a sale made now.
+ */
+public enum LeaderboardWindow {
+    ALL_TIME("all-time", null),
+    DAY("24h", Duration.ofHours(6)),
+    WEEK("7d", Duration.ofHours(42));
+
+    private final String path;
+    private final Duration halfLife;
+
+    LeaderboardWindow(String path, Duration halfLife) {
+        this.path = path;
+        this.halfLife = halfLife;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isDecayed() {
+        return halfLife != null;
+    }
+
+    // Decay rate per second; 0 for the all-time window
+    public double getLambda() {
+        return halfLife != null ? Math.log(2) / halfLife.getSeconds() : 0;
+    }
+
+    public static Optional<LeaderboardWindow> fromPath(String path) {
+        return Arrays.stream(values()).filter(window -> window.path.equals(path)).findFirst();
+    }
+}
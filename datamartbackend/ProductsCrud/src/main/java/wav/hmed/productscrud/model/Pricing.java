@@ -0,0 +1,28 @@
+package wav.hmed.productscrud.model;
+
+/**
+ * The single definition of how prices are rounded and discounted. Amounts are kept in integer cents so
+ * sums never drift; both roundings are half-up, and the Mongo backfill in {@code PricingService} mirrors
+ * them exactly.
+ */
+public final class Pricing {
+
+    private Pricing() {
+    }
+
+    public static Long toCents(Double amount) {
+        return amount != null ? Math.round(amount * 100) : null;
+    }
+
+    public static Long discountedCents(Long priceCents, Integer discount) {
+        if (priceCents == null) {
+            return null;
+        }
+        int percent = discount != null ? Math.min(Math.max(discount, 0), 100) : 0;
+        return Math.floorDiv(priceCents * (100 - percent) + 50, 100);
+    }
+
+    public static Double toAmount(Long cents) {
+        return cents != null ? cents / 100.0 : null;
+    }
+}
@@ -1,11 +1,16 @@
 package wav.hmed.productscrud.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -15,9 +20,12 @@ import java.util.List;
 import java.util.logging.Logger;
 
 @Document(collection = "products")
+// Only new arrivals are indexed; backs the daily isNew expiry job
+@CompoundIndex(name = "new_arrivals_idx", def = "{'isNew': 1, 'postedDate': 1}", partialFilter = "{'isNew': true}")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Product {
     private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(Product.class);
     @Id
@@ -39,6 +47,19 @@ public class Product {
     private Boolean clearance;
     private Integer discount;
     private Integer stock;
+    // Written by PricingService on every price or discount change; checkout and listings read these
+    private Long priceCents;
+    @Indexed
+    private Long finalPriceCents;
+    // Exact rating aggregates, only ever changed through $inc; the average is derived on read
+    @JsonIgnore
+    private Long ratingSum;
+    @JsonIgnore
+    private Integer ratingCount;
+    // Change token for incremental exports: set by auditing on save and by currentDate on in-place updates
+    @LastModifiedDate
+    @Indexed
+    private Instant updatedAt;
 
     public String getId() {
         return id != null ? id.toString() : null;
@@ -60,15 +81,25 @@ public class Product {
         this.id = id;
     }
 
+    // Average derived from the aggregates; documents that were never rated keep the stored value
+    public Double getRating() {
+        if (ratingSum != null && ratingCount != null && ratingCount > 0) {
+            return Math.round(ratingSum * 10.0 / ratingCount) / 10.0;
+        }
+        return rating;
+    }
+
     // Helper method to calculate final price considering discount
+    @JsonIgnore
     public Double getFinalPrice() {
-        if (discount != null && discount > 0) {
-            return price - (price * discount / 100.0);
+        if (finalPriceCents != null) {
+            return Pricing.toAmount(finalPriceCents);
         }
-        return price;
+        return Pricing.toAmount(Pricing.discountedCents(Pricing.toCents(price), discount));
     }
 
     // Helper method to check if product is in stock
+    @JsonIgnore
     public boolean isInStock() {
         return stock != null && stock > 0;
     }
@@ -79,6 +110,7 @@ public class Product {
     }
 
     // Helper method to get formatted discount price
+    @JsonIgnore
     public String getFormattedDiscountPrice() {
         if (discount != null && discount > 0) {
             return String.format("%.2f", getFinalPrice());
@@ -0,0 +1,11 @@
+package wav.hmed.productscrud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Published by ProductService with the document as it was when it was removed
+@Getter
+@AllArgsConstructor
+public class ProductDeletedEvent {
+    private final Product product;
+}
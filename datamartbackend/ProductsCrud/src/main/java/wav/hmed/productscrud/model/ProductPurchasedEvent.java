@@ -0,0 +1,12 @@
+package wav.hmed.productscrud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Published by ProductService after a purchase has been recorded on the product document
+@Getter
+@AllArgsConstructor
+public class ProductPurchasedEvent {
+    private final Product product;
+    private final int quantity;
+}
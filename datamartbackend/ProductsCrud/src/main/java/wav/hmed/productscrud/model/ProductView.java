@@ -0,0 +1,59 @@
+package wav.hmed.productscrud.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Lean, flat representation used by the list endpoints (full catalog, search). Derived values are
+ * computed once when the view is built instead of in getters during serialization, and null fields
+ * are left out of the payload.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductView {
+    private final String id;
+    private final String name;
+    private final String description;
+    private final Double price;
+    // Only present when a discount applies
+    private final Double finalPrice;
+    private final Double rating;
+    private final Integer reviews;
+    private final String image;
+    private final List<String> category;
+    private final Long brandId;
+    private final String brandName;
+    private final Boolean isNew;
+    private final Boolean isFeatured;
+    private final Instant postedDate;
+    private final Integer purchaseCount;
+    private final Boolean clearance;
+    private final Integer discount;
+    private final Integer stock;
+
+    public ProductView(Product product) {
+        this.id = product.getId();
+        this.name = product.getName();
+        this.description = product.getDescription();
+        this.price = product.getPrice();
+        this.finalPrice = product.getDiscount() != null && product.getDiscount() > 0
+                ? product.getFinalPrice()
+                : null;
+        this.rating = product.getRating();
+        this.reviews = product.getReviews();
+        this.image = product.getImage();
+        this.category = product.getCategory();
+        this.brandId = product.getBrandId();
+        this.brandName = product.getBrandName();
+        this.isNew = product.getIsNew();
+        this.isFeatured = product.getIsFeatured();
+        this.postedDate = product.getPostedDate();
+        this.purchaseCount = product.getPurchaseCount();
+        this.clearance = product.getClearance();
+        this.discount = product.getDiscount();
+        this.stock = product.getStock();
+    }
+}
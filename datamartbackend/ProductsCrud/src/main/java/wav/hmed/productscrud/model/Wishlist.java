@@ -1,9 +1,11 @@
 package wav.hmed.productscrud.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import lombok.Data;
 import java.util.List;
 import java.util.ArrayList;
@@ -14,6 +16,10 @@ public class Wishlist {
     @Id
     private String id;
     private String userId;
-    @DBRef
+    // Stored as a set of product ids (maintained with $addToSet/$pull); indexed with userId by WishlistService
+    @JsonIgnore
+    private List<ObjectId> productIds = new ArrayList<>();
+    // Hydrated on read with a single $in query
+    @Transient
     private List<Product> products = new ArrayList<>();
-}
\ No newline at end of file
+}
@@ -3,6 +3,11 @@ package wav.hmed.productscrud.service;
 
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import wav.hmed.productscrud.model.Brand;
 import wav.hmed.productscrud.repository.BrandRepository;
@@ -16,6 +21,12 @@ public class BrandService {
     @Autowired
     private BrandRepository brandRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     public List<Brand> getAllBrands() {
         return brandRepository.findAll();
     }
@@ -28,16 +39,18 @@ public class BrandService {
         return brandRepository.save(brand);
     }
 
+    // Only the editable fields are written, so sales increments from CatalogCounterService are never overwritten
     public Brand updateBrand(String id, Brand brandDetails) {
-        Optional<Brand> brand = brandRepository.findById(id);
-        if (brand.isPresent()) {
-            Brand existingBrand = brand.get();
-            existingBrand.setName(brandDetails.getName());
-            existingBrand.setSales(brandDetails.getSales());
-            existingBrand.setCategories(brandDetails.getCategories());
-            return brandRepository.save(existingBrand);
+        Query query = Query.query(Criteria.where("id").is(id));
+        Update update = new Update()
+                .set("name", brandDetails.getName())
+                .set("categories", brandDetails.getCategories());
+        Brand updated = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Brand.class);
+        if (updated != null) {
+            catalogVersionService.bump(CatalogVersionService.BRANDS);
         }
-        return null;
+        return updated;
     }
 
     public void deleteBrand(String id) {
@@ -2,109 +2,105 @@ package wav.hmed.productscrud.service;
 
 import wav.hmed.productscrud.model.*;
 import wav.hmed.productscrud.repository.*;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.stereotype.Service;
 import org.bson.types.ObjectId;
 import java.util.*;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CartService {
-    private final CartRepository cartRepository;
+    private final CartStore cartStore;
     private final ProductRepository productRepository;
+    private final MongoTemplate mongoTemplate;
+    private final PricingService pricingService;
 
     public Cart getOrCreateCart(String userId) {
-        return cartRepository.findByUserId(userId)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUserId(userId);
-                    newCart.setItems(new ArrayList<>());
-                    newCart.setTotalAmount(0.0);
-                    newCart.setLoyaltyPoints(0);
-                    newCart.setLastModified(new Date());
-                    return cartRepository.save(newCart);
-                });
+        return cartStore.getOrCreateCart(userId);
     }
 
-    public Cart addToCart(String userId, String productId, Integer quantity) {
-        Cart cart = getOrCreateCart(userId);
-        Optional<Product> productOpt = productRepository.findById(String.valueOf(new ObjectId(productId)));
-
-        if (productOpt.isPresent()) {
-            Product product = productOpt.get();
-            CartItem cartItem = cart.getItems().stream()
-                    .filter(item -> item.getProductId().equals(productId))
-                    .findFirst()
-                    .orElse(null);
-
-            if (cartItem != null) {
-                cartItem.setQuantity(cartItem.getQuantity() + quantity);
-                cartItem.setSubtotal(calculateItemSubtotal(cartItem));
-            } else {
-                cartItem = new CartItem();
-                cartItem.setProductId(productId);
-                cartItem.setName(product.getName());
-                cartItem.setPrice(product.getPrice());
-                cartItem.setQuantity(quantity);
-                cartItem.setImage(product.getImage());
-                cartItem.setDiscount(product.getDiscount());
-                cartItem.setBrandName(product.getBrandName());
-                cartItem.setSubtotal(calculateItemSubtotal(cartItem));
-                cart.getItems().add(cartItem);
-            }
-
-            updateCartTotals(cart);
-            cart.setLastModified(new Date());
-            return cartRepository.save(cart);
-        }
-
-        throw new RuntimeException("Product not found");
+    public Set<String> getCartProductIds(String userId) {
+        return cartStore.getOrCreateCart(userId).getItems().stream()
+                .map(CartItem::getProductId)
+                .collect(Collectors.toSet());
     }
 
-
+    public Cart addToCart(String userId, String productId, Integer quantity) {
+        Product product = productRepository.findById(String.valueOf(new ObjectId(productId)))
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+        return cartStore.addItem(userId, toCartItem(product, quantity));
+    }
 
     public Cart updateCartItemQuantity(String userId, String productId, Integer quantity) {
-        Cart cart = getOrCreateCart(userId);
-        CartItem cartItem = cart.getItems().stream()
-                .filter(item -> item.getProductId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Item not found in cart"));
-
-        if (quantity <= 0) {
-            cart.getItems().remove(cartItem);
-        } else {
-            cartItem.setQuantity(quantity);
-            cartItem.setSubtotal(calculateItemSubtotal(cartItem));
-        }
-
-        updateCartTotals(cart);
-        cart.setLastModified(new Date());
-        return cartRepository.save(cart);
+        return cartStore.updateQuantity(userId, productId, quantity);
     }
 
     public Cart removeFromCart(String userId, String productId) {
-        Cart cart = getOrCreateCart(userId);
-        cart.getItems().removeIf(item -> item.getProductId().equals(productId));
-        updateCartTotals(cart);
-        cart.setLastModified(new Date());
-        return cartRepository.save(cart);
+        return cartStore.removeItem(userId, productId);
     }
 
     public void clearCart(String userId) {
-        cartRepository.deleteByUserId(userId);
+        cartStore.clear(userId);
     }
 
-    private Double calculateItemSubtotal(CartItem item) {
-        double discountMultiplier = (100 - (item.getDiscount() != null ? item.getDiscount() : 0)) / 100.0;
-        return item.getPrice() * item.getQuantity() * discountMultiplier;
+    /**
+     * Carts used to be created by concurrent first reads, so some users own several. Keeps the most
+     * recently modified one and then enforces one cart per user with a unique userId index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void enforceOneCartPerUser() {
+        try {
+            MongoCollection<Document> collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Cart.class));
+            List<Document> duplicates = collection.aggregate(List.of(
+                    Aggregates.sort(Sorts.descending("lastModified")),
+                    Aggregates.group("$userId", Accumulators.push("ids", "$_id"), Accumulators.sum("count", 1)),
+                    Aggregates.match(Filters.gt("count", 1))
+            )).into(new ArrayList<>());
+
+            long removed = 0;
+            for (Document duplicate : duplicates) {
+                List<Object> ids = duplicate.getList("ids", Object.class);
+                removed += collection.deleteMany(Filters.in("_id", ids.subList(1, ids.size()))).getDeletedCount();
+            }
+            if (removed > 0) {
+                log.info("Removed {} duplicate carts", removed);
+            }
+
+            mongoTemplate.indexOps(Cart.class).ensureIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .unique()
+                    .named("user_idx"));
+        } catch (MongoException e) {
+            log.warn("Could not enforce one cart per user: {}", e.getMessage());
+        }
     }
 
-    private void updateCartTotals(Cart cart) {
-        double total = cart.getItems().stream()
-                .mapToDouble(CartItem::getSubtotal)
-                .sum();
-        cart.setTotalAmount(total);
+    private CartItem toCartItem(Product product, Integer quantity) {
+        CartItem cartItem = new CartItem();
+        cartItem.setProductId(product.getId());
+        cartItem.setName(product.getName());
+        cartItem.setPrice(product.getPrice());
+        cartItem.setQuantity(quantity);
+        cartItem.setImage(product.getImage());
+        cartItem.setDiscount(product.getDiscount());
+        cartItem.setBrandName(product.getBrandName());
+        cartItem.setUnitPriceCents(pricingService.unitPriceCents(product));
+        return cartItem;
     }
 
     /*
@@ -117,4 +113,4 @@ public class CartService {
                 .collect(Collectors.toList());
     }
     */
-}
\ No newline at end of file
+}
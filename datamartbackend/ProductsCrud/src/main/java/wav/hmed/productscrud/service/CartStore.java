@@ -0,0 +1,23 @@
+package wav.hmed.productscrud.service;
+
+import wav.hmed.productscrud.model.Cart;
+import wav.hmed.productscrud.model.CartItem;
+
+/**
+ * Where cart lines live. Selected with {@code cart.store}: {@code mongo} (default) writes straight
+ * to the carts collection, {@code redis} keeps a hash per cart and writes behind to Mongo.
+ */
+public interface CartStore {
+
+    Cart getOrCreateCart(String userId);
+
+    // Adds the line, or increases its quantity when the product is already in the cart
+    Cart addItem(String userId, CartItem item);
+
+    // Sets the quantity of an existing line, removing it when quantity <= 0
+    Cart updateQuantity(String userId, String productId, int quantity);
+
+    Cart removeItem(String userId, String productId);
+
+    void clear(String userId);
+}
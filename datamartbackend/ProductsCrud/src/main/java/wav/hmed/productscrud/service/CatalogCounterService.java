@@ -0,0 +1,179 @@
+package wav.hmed.productscrud.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import wav.hmed.productscrud.model.Brand;
+import wav.hmed.productscrud.model.Category;
+import wav.hmed.productscrud.model.Product;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps {@code Category.count} (products per category) and {@code Brand.sales} (units sold per brand)
+ * current with $inc updates issued next to the product writes that change them. A daily job recomputes
+ * both from the products collection with one aggregation to repair any drift.
+ *
+ * <p>Products reference categories by name, and the storefront matches those names case-insensitively,
+ * so category counts are keyed on the lower-cased name. Sales changes on every purchase, so it does not
+ * bump the brands catalog version (that would invalidate the brand snapshot and ETag on each checkout);
+ * the daily reconcile bumps it once, which bounds how stale the cached sales figures get.
+ */
+@Service
+public class CatalogCounterService {
+
+    private static final Logger log = LogManager.getLogger(CatalogCounterService.class);
+    private static final String RECONCILE_JOB = "catalog-counters";
+    // Strength 2 compares letters and accents but not case
+    private static final Collation IGNORE_CASE = Collation.of("en").strength(Collation.ComparisonLevel.secondary());
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Value("${catalog.counters.lock-lease:PT1H}")
+    private Duration reconcileLockLease;
+
+    public void productCreated(Product product) {
+        adjustCategoryCounts(categoriesOf(product), 1);
+    }
+
+    public void productDeleted(Product product) {
+        adjustCategoryCounts(categoriesOf(product), -1);
+    }
+
+    public void productUpdated(Product before, Product after) {
+        Set<String> removed = categoriesOf(before);
+        removed.removeAll(categoriesOf(after));
+        Set<String> added = categoriesOf(after);
+        added.removeAll(categoriesOf(before));
+
+        adjustCategoryCounts(removed, -1);
+        adjustCategoryCounts(added, 1);
+    }
+
+    public void productSold(Product product, int quantity) {
+        if (product.getBrandName() == null || quantity <= 0) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("name").is(product.getBrandName()));
+        mongoTemplate.updateFirst(query, new Update().inc("sales", quantity), Brand.class);
+    }
+
+    @Scheduled(cron = "${catalog.counters.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        if (!jobLockService.tryAcquire(RECONCILE_JOB, reconcileLockLease)) {
+            return;
+        }
+        reconcileNow();
+    }
+
+    // Also run directly after bulk imports, which bypass the per-product hooks
+    public void reconcileNow() {
+        // Both totals in one pass over products
+        Document facets = new Document("$facet", new Document()
+                .append("categories", List.of(
+                        new Document("$unwind", "$category"),
+                        new Document("$group", new Document("_id", new Document("$toLower", "$category"))
+                                .append("total", new Document("$sum", 1)))))
+                .append("brands", List.of(
+                        new Document("$group", new Document("_id", "$brandName")
+                                .append("total", new Document("$sum", new Document("$ifNull", List.of("$purchaseCount", 0))))))));
+        Document result = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class))
+                .aggregate(List.of(facets))
+                .first();
+        if (result == null) {
+            return;
+        }
+
+        int categories = applyTotals(Category.class, "count", totals(result, "categories"), true);
+        int brands = applyTotals(Brand.class, "sales", totals(result, "brands"), false);
+
+        if (categories > 0) {
+            catalogVersionService.bump(CatalogVersionService.CATEGORIES);
+        }
+        // Always, so cached brand payloads pick up the day's sales even when nothing drifted
+        catalogVersionService.bump(CatalogVersionService.BRANDS);
+        log.info("Reconciled catalog counters: {} categories and {} brands corrected", categories, brands);
+    }
+
+    private void adjustCategoryCounts(Collection<String> categoryNames, int delta) {
+        if (categoryNames.isEmpty()) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("name").in(categoryNames)).collation(IGNORE_CASE);
+        if (mongoTemplate.updateMulti(query, new Update().inc("count", delta), Category.class).getModifiedCount() > 0) {
+            catalogVersionService.bump(CatalogVersionService.CATEGORIES);
+        }
+    }
+
+    // Sets every document's counter to the total of its name (0 when nothing matched); returns how many changed
+    private int applyTotals(Class<?> type, String counterField, Map<String, Integer> totals, boolean ignoreCase) {
+        Query all = new Query();
+        all.fields().include("name").include(counterField);
+        List<Document> documents = mongoTemplate.find(all, Document.class, mongoTemplate.getCollectionName(type));
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+        int changes = 0;
+        for (Document document : documents) {
+            String name = document.getString("name");
+            String key = ignoreCase && name != null ? name.toLowerCase(Locale.ROOT) : name;
+            int expected = key != null ? totals.getOrDefault(key, 0) : 0;
+            Number actual = document.get(counterField, Number.class);
+            if (actual == null || actual.intValue() != expected) {
+                bulk.updateOne(Query.query(Criteria.where("_id").is(document.get("_id"))),
+                        new Update().set(counterField, expected));
+                changes++;
+            }
+        }
+        if (changes > 0) {
+            bulk.execute();
+        }
+        return changes;
+    }
+
+    private static Map<String, Integer> totals(Document facets, String facet) {
+        Map<String, Integer> totals = new HashMap<>();
+        for (Document row : facets.getList(facet, Document.class)) {
+            if (row.get("_id") != null) {
+                totals.put(String.valueOf(row.get("_id")), row.get("total", Number.class).intValue());
+            }
+        }
+        return totals;
+    }
+
+    // Lower-cased, matching the reconcile totals; the update itself matches through IGNORE_CASE
+    private static Set<String> categoriesOf(Product product) {
+        Set<String> names = new LinkedHashSet<>();
+        if (product != null && product.getCategory() != null) {
+            for (String name : product.getCategory()) {
+                if (name != null) {
+                    names.add(name.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,198 @@
+package wav.hmed.productscrud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.opencsv.CSVWriter;
+import com.opencsv.ICSVWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import wav.hmed.productscrud.model.Brand;
+import wav.hmed.productscrud.model.Category;
+import wav.hmed.productscrud.model.Product;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the catalog out of a Mongo cursor straight into the response, one document at a time, so an
+ * export of any size uses constant memory. Writes block on the servlet output stream, which gives natural
+ * backpressure against slow consumers.
+ *
+ * <p>Products can be exported incrementally: by {@code postedDate}, or by change token. A change token is
+ * the {@code updatedAt} position an export started from (minus a small overlap for writes that were still
+ * in flight); feeding it back returns everything modified since. Deleted products are not reported.
+ * Brands and categories are small and always exported in full. CSV headers match the import columns.
+ */
+@Service
+public class CatalogExportService {
+
+    private static final Logger log = LogManager.getLogger(CatalogExportService.class);
+    private static final int FLUSH_EVERY = 500;
+
+    private static final List<Column<Product>> PRODUCT_COLUMNS = List.of(
+            new Column<>("id", Product::getId),
+            new Column<>("name", Product::getName),
+            new Column<>("description", Product::getDescription),
+            new Column<>("price", Product::getPrice),
+            new Column<>("rating", Product::getRating),
+            new Column<>("reviews", Product::getReviews),
+            new Column<>("image", Product::getImage),
+            new Column<>("category", product -> product.getCategory() != null ? String.join("|", product.getCategory()) : null),
+            new Column<>("brandName", Product::getBrandName),
+            new Column<>("isNew", Product::getIsNew),
+            new Column<>("isFeatured", Product::getIsFeatured),
+            new Column<>("postedDate", Product::getPostedDate),
+            new Column<>("purchaseCount", Product::getPurchaseCount),
+            new Column<>("clearance", Product::getClearance),
+            new Column<>("discount", Product::getDiscount),
+            new Column<>("stock", Product::getStock),
+            new Column<>("updatedAt", Product::getUpdatedAt)
+    );
+    private static final List<Column<Brand>> BRAND_COLUMNS = List.of(
+            new Column<>("id", Brand::getId),
+            new Column<>("name", Brand::getName),
+            new Column<>("sales", Brand::getSales),
+            new Column<>("categories", brand -> brand.getCategories() != null ? String.join("|", brand.getCategories()) : null)
+    );
+    private static final List<Column<Category>> CATEGORY_COLUMNS = List.of(
+            new Column<>("id", Category::getId),
+            new Column<>("name", Category::getName),
+            new Column<>("count", Category::getCount),
+            new Column<>("icon", Category::getIcon)
+    );
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Writes stamped shortly before an export starts may commit after the cursor passed them
+    @Value("${catalog.export.token-overlap:PT1M}")
+    private Duration tokenOverlap;
+
+    public String newChangeToken() {
+        return String.valueOf(Instant.now().minus(tokenOverlap).toEpochMilli());
+    }
+
+    public Instant parseChangeToken(String token) {
+        try {
+            return Instant.ofEpochMilli(Long.parseLong(token));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid change token: " + token);
+        }
+    }
+
+    /**
+     * Validates the request eagerly (so bad parameters become a 400 before anything is streamed) and
+     * returns the body writer.
+     */
+    public StreamingResponseBody export(String type, String format, boolean gzip, Instant postedSince, Instant changedSince) {
+        boolean csv = isCsv(format);
+        switch (type == null ? "" : type.toLowerCase()) {
+            case CatalogVersionService.PRODUCTS: {
+                Query query = new Query();
+                if (postedSince != null) {
+                    query.addCriteria(Criteria.where("postedDate").gte(postedSince));
+                }
+                if (changedSince != null) {
+                    query.addCriteria(Criteria.where("updatedAt").gte(changedSince));
+                    query.with(Sort.by("updatedAt"));
+                }
+                return body(query, Product.class, PRODUCT_COLUMNS, csv, gzip);
+            }
+            case CatalogVersionService.BRANDS:
+                return body(new Query(), Brand.class, BRAND_COLUMNS, csv, gzip);
+            case CatalogVersionService.CATEGORIES:
+                return body(new Query(), Category.class, CATEGORY_COLUMNS, csv, gzip);
+            default:
+                throw new IllegalArgumentException("Unsupported export type: " + type + ". Use products, brands or categories.");
+        }
+    }
+
+    public boolean isCsv(String format) {
+        switch (format == null ? "" : format.toLowerCase()) {
+            case "csv":
+                return true;
+            case "ndjson":
+            case "jsonl":
+                return false;
+            default:
+                throw new IllegalArgumentException("Unsupported export format: " + format + ". Use csv or ndjson.");
+        }
+    }
+
+    private <T> StreamingResponseBody body(Query query, Class<T> type, List<Column<T>> columns, boolean csv, boolean gzip) {
+        return output -> {
+            OutputStream target = gzip ? new GZIPOutputStream(output, 64 * 1024) : output;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+            long written = 0;
+
+            try (Stream<T> cursor = mongoTemplate.stream(query, type)) {
+                if (csv) {
+                    ICSVWriter csvWriter = new CSVWriter(writer);
+                    csvWriter.writeNext(columns.stream().map(Column::name).toArray(String[]::new), false);
+                    for (T item : (Iterable<T>) cursor::iterator) {
+                        csvWriter.writeNext(columns.stream().map(column -> column.format(item)).toArray(String[]::new), false);
+                        if (++written % FLUSH_EVERY == 0) {
+                            csvWriter.flush();
+                        }
+                    }
+                    csvWriter.flush();
+                } else {
+                    ObjectWriter json = objectMapper.writerFor(type);
+                    for (T item : (Iterable<T>) cursor::iterator) {
+                        writer.write(json.writeValueAsString(item));
+                        writer.write('\n');
+                        if (++written % FLUSH_EVERY == 0) {
+                            writer.flush();
+                        }
+                    }
+                }
+            }
+
+            writer.flush();
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+            log.info("Exported {} {} documents", written, type.getSimpleName());
+        };
+    }
+
+    private static class Column<T> {
+        private final String name;
+        private final Function<T, Object> value;
+
+        private Column(String name, Function<T, Object> value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        String name() {
+            return name;
+        }
+
+        String format(T item) {
+            Object result = value.apply(item);
+            return result != null ? Objects.toString(result) : "";
+        }
+    }
+}
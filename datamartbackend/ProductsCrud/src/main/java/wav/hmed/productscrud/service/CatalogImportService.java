@@ -0,0 +1,407 @@
+package wav.hmed.productscrud.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.opencsv.CSVReaderHeaderAware;
+import com.opencsv.exceptions.CsvException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import wav.hmed.productscrud.model.Brand;
+import wav.hmed.productscrud.model.Category;
+import wav.hmed.productscrud.model.ImportReport;
+import wav.hmed.productscrud.model.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Streams CSV or NDJSON catalog feeds into Mongo. Rows are parsed one at a time, validated, and written
+ * with unordered bulk inserts (or upserts keyed by id/name) in batches, so memory stays flat regardless
+ * of feed size and one bad row never stops the rest. Every rejected row is reported with its line number.
+ *
+ * <p>CSV files need a header row named after the model fields; list fields (category, categories) use
+ * {@code |} as separator. Bulk writes bypass the per-document hooks, so catalog versions and category/brand
+ * counters are refreshed once at the end of the import.
+ */
+@Service
+public class CatalogImportService {
+
+    private static final Logger log = LogManager.getLogger(CatalogImportService.class);
+    private static final Set<String> LIST_FIELDS = Set.of("category", "categories");
+    private static final String LIST_SEPARATOR = "\\|";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private CatalogCounterService catalogCounterService;
+
+    @Autowired
+    private PricingService pricingService;
+
+    @Value("${catalog.import.batch-size:1000}")
+    private int defaultBatchSize;
+
+    public ImportReport importCatalog(String type, String format, boolean upsert, Integer batchSize, InputStream input) {
+        ImportTarget target = ImportTarget.of(type);
+        int size = batchSize != null && batchSize > 0 ? batchSize : defaultBatchSize;
+        ImportReport report = new ImportReport(target.collection);
+        long started = System.currentTimeMillis();
+
+        try (RowReader rows = openReader(format, input)) {
+            List<PendingRow> batch = new ArrayList<>(size);
+            Map<String, Object> row;
+            while ((row = rows.next(report)) != null) {
+                report.setRowsRead(report.getRowsRead() + 1);
+                long line = rows.line();
+                try {
+                    batch.add(new PendingRow(line, toEntity(target, row), row.keySet()));
+                } catch (IllegalArgumentException e) {
+                    report.addError(line, e.getMessage());
+                }
+                if (batch.size() >= size) {
+                    write(target, upsert, batch, report);
+                    batch.clear();
+                }
+            }
+            write(target, upsert, batch, report);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read import stream", e);
+        }
+
+        if (report.getInserted() + report.getUpdated() > 0) {
+            if (upsert && target.type == Product.class) {
+                pricingService.recomputeChangedSince(Instant.ofEpochMilli(started));
+            }
+            catalogVersionService.bump(target.collection);
+            catalogCounterService.reconcileNow();
+        }
+        report.setDurationMs(System.currentTimeMillis() - started);
+        log.info("Imported {}: {} rows read, {} inserted, {} updated, {} failed in {} ms", target.collection,
+                report.getRowsRead(), report.getInserted(), report.getUpdated(), report.getFailed(), report.getDurationMs());
+        return report;
+    }
+
+    private void write(ImportTarget target, boolean upsert, List<PendingRow> batch, ImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, target.type);
+        for (PendingRow pending : batch) {
+            if (upsert) {
+                bulk.upsert(keyQuery(target, pending.entity), toUpdate(target, pending));
+            } else {
+                if (pending.entity instanceof Product product) {
+                    prepareNewProduct(product);
+                }
+                bulk.insert(pending.entity);
+            }
+        }
+
+        BulkWriteResult result;
+        try {
+            result = bulk.execute();
+        } catch (BulkOperationException e) {
+            // Unordered: everything except the reported rows was written
+            result = e.getResult();
+            for (BulkWriteError error : e.getErrors()) {
+                report.addError(batch.get(error.getIndex()).line, error.getMessage());
+            }
+        }
+        report.setInserted(report.getInserted() + result.getInsertedCount() + result.getUpserts().size());
+        report.setUpdated(report.getUpdated() + result.getMatchedCount());
+    }
+
+    // Explicit id wins; otherwise products and brands are matched by name, categories by their id
+    private Query keyQuery(ImportTarget target, Object entity) {
+        if (entity instanceof Product product) {
+            return product.getId() != null
+                    ? Query.query(Criteria.where("_id").is(new ObjectId(product.getId())))
+                    : Query.query(Criteria.where("name").is(product.getName()));
+        }
+        if (entity instanceof Brand brand) {
+            return brand.getId() != null
+                    ? Query.query(Criteria.where("_id").is(brand.getId()))
+                    : Query.query(Criteria.where("name").is(brand.getName()));
+        }
+        return Query.query(Criteria.where("_id").is(((Category) entity).getId()));
+    }
+
+    // Only the columns present in the row are set, so counters and aggregates of existing documents survive
+    private Update toUpdate(ImportTarget target, PendingRow pending) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(pending.entity, document);
+
+        Update update = new Update();
+        document.forEach((field, value) -> {
+            if (pending.columns.contains(field) && !"_id".equals(field) && !"updatedAt".equals(field)) {
+                update.set(field, value);
+            }
+        });
+
+        if (pending.entity instanceof Product product) {
+            prepareNewProduct(product);
+            if (!pending.columns.contains("postedDate")) {
+                update.setOnInsert("postedDate", product.getPostedDate());
+            }
+            if (!pending.columns.contains("purchaseCount")) {
+                update.setOnInsert("purchaseCount", 0);
+            }
+            update.setOnInsert("ratingSum", product.getRatingSum());
+            update.setOnInsert("ratingCount", product.getRatingCount());
+            update.currentDate("updatedAt"); // Upserts bypass auditing
+        }
+        return update;
+    }
+
+    private void prepareNewProduct(Product product) {
+        if (product.getPostedDate() == null) {
+            product.setPostedDate(Instant.now());
+        }
+        productService.initRatingAggregates(product);
+        pricingService.apply(product);
+    }
+
+    private Object toEntity(ImportTarget target, Map<String, Object> row) {
+        Map<String, Object> fields = new LinkedHashMap<>(row);
+        Object id = fields.remove("id");
+        if (id == null) {
+            id = fields.remove("_id");
+        }
+        fields.replaceAll((field, value) -> LIST_FIELDS.contains(field) && value instanceof String text
+                ? Arrays.asList(text.split(LIST_SEPARATOR))
+                : value);
+
+        Object entity;
+        try {
+            entity = objectMapper.convertValue(fields, target.type);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value: " + rootMessage(e));
+        }
+
+        if (id != null) {
+            String idValue = String.valueOf(id);
+            if (entity instanceof Product product) {
+                if (!ObjectId.isValid(idValue)) {
+                    throw new IllegalArgumentException("Invalid product id: " + idValue);
+                }
+                product.setId(new ObjectId(idValue));
+            } else if (entity instanceof Brand brand) {
+                brand.setId(idValue);
+            } else {
+                ((Category) entity).setId(idValue);
+            }
+        }
+        target.validator.accept(entity);
+        return entity;
+    }
+
+    private RowReader openReader(String format, InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        switch (format == null ? "" : format.toLowerCase()) {
+            case "csv":
+                return new CsvRowReader(new CSVReaderHeaderAware(reader));
+            case "ndjson":
+            case "jsonl":
+                return new NdjsonRowReader(reader, objectMapper);
+            default:
+                throw new IllegalArgumentException("Unsupported import format: " + format + ". Use csv or ndjson.");
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        String message = cause.getMessage();
+        // Jackson appends the source location on further lines, which means nothing to the caller
+        return message != null ? message.split("\n")[0] : cause.getClass().getSimpleName();
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static class ImportTarget {
+        private final String collection;
+        private final Class<?> type;
+        private final Consumer<Object> validator;
+
+        private ImportTarget(String collection, Class<?> type, Consumer<Object> validator) {
+            this.collection = collection;
+            this.type = type;
+            this.validator = validator;
+        }
+
+        static ImportTarget of(String type) {
+            switch (type == null ? "" : type.toLowerCase()) {
+                case CatalogVersionService.PRODUCTS:
+                    return new ImportTarget(CatalogVersionService.PRODUCTS, Product.class, entity -> {
+                        Product product = (Product) entity;
+                        require(!isBlank(product.getName()), "name is required");
+                        require(product.getPrice() != null && product.getPrice() >= 0, "price must be a non-negative number");
+                        require(product.getStock() == null || product.getStock() >= 0, "stock must not be negative");
+                        require(product.getDiscount() == null || (product.getDiscount() >= 0 && product.getDiscount() <= 100),
+                                "discount must be between 0 and 100");
+                    });
+                case CatalogVersionService.BRANDS:
+                    return new ImportTarget(CatalogVersionService.BRANDS, Brand.class, entity ->
+                            require(!isBlank(((Brand) entity).getName()), "name is required"));
+                case CatalogVersionService.CATEGORIES:
+                    return new ImportTarget(CatalogVersionService.CATEGORIES, Category.class, entity -> {
+                        Category category = (Category) entity;
+                        require(!isBlank(category.getId()), "id is required");
+                        require(!isBlank(category.getName()), "name is required");
+                    });
+                default:
+                    throw new IllegalArgumentException("Unsupported import type: " + type + ". Use products, brands or categories.");
+            }
+        }
+    }
+
+    private static class PendingRow {
+        private final long line;
+        private final Object entity;
+        private final Set<String> columns;
+
+        private PendingRow(long line, Object entity, Set<String> columns) {
+            this.line = line;
+            this.entity = entity;
+            this.columns = columns;
+        }
+    }
+
+    private interface RowReader extends AutoCloseable {
+        // Next row, or null at the end; rows that cannot be parsed are reported and skipped
+        Map<String, Object> next(ImportReport report) throws IOException;
+
+        long line();
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static class CsvRowReader implements RowReader {
+        private final CSVReaderHeaderAware reader;
+
+        private CsvRowReader(CSVReaderHeaderAware reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map<String, Object> next(ImportReport report) throws IOException {
+            while (true) {
+                Map<String, String> values;
+                try {
+                    values = reader.readMap();
+                } catch (CsvException e) {
+                    report.setRowsRead(report.getRowsRead() + 1);
+                    report.addError(line(), e.getMessage());
+                    continue;
+                }
+                if (values == null) {
+                    return null;
+                }
+                // Empty cells mean "not provided"
+                Map<String, Object> row = new LinkedHashMap<>();
+                values.forEach((column, value) -> {
+                    if (value != null && !value.isEmpty()) {
+                        row.put(column.trim(), value);
+                    }
+                });
+                return row;
+            }
+        }
+
+        @Override
+        public long line() {
+            return reader.getLinesRead();
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static class NdjsonRowReader implements RowReader {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private long line;
+
+        private NdjsonRowReader(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map<String, Object> next(ImportReport report) throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    return objectMapper.readValue(text, LinkedHashMap.class);
+                } catch (JsonProcessingException e) {
+                    report.setRowsRead(report.getRowsRead() + 1);
+                    report.addError(line, "Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public long line() {
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package wav.hmed.productscrud.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+import wav.hmed.productscrud.model.Brand;
+import wav.hmed.productscrud.model.CatalogSnapshot;
+import wav.hmed.productscrud.model.CatalogVersion;
+import wav.hmed.productscrud.model.Category;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Serves brands and categories from immutable in-memory snapshots instead of querying Mongo per request.
+ *
+ * <p>Each snapshot is stamped with the catalog version it was built against. A read whose snapshot is
+ * behind the current version (bumped by our own writes, or picked up from other replicas by
+ * {@link CatalogVersionService#refresh()}) rebuilds it once and swaps the reference; all other reads
+ * just return the current reference. With {@code catalog.snapshot.change-streams=true} (replica set
+ * required), writes made outside the application bump the version as well.
+ */
+@Service
+public class CatalogSnapshotService {
+
+    private static final Logger log = LogManager.getLogger(CatalogSnapshotService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${catalog.snapshot.change-streams:false}")
+    private boolean changeStreams;
+
+    private final Map<String, CatalogSnapshot<?>> snapshots = new ConcurrentHashMap<>();
+    private MessageListenerContainer changeStreamContainer;
+
+    @SuppressWarnings("unchecked")
+    public CatalogSnapshot<Brand> brands() {
+        return (CatalogSnapshot<Brand>) snapshot(CatalogVersionService.BRANDS, Brand.class, Brand::getId);
+    }
+
+    @SuppressWarnings("unchecked")
+    public CatalogSnapshot<Category> categories() {
+        return (CatalogSnapshot<Category>) snapshot(CatalogVersionService.CATEGORIES, Category.class, Category::getId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        brands();
+        categories();
+
+        if (changeStreams) {
+            DefaultMessageListenerContainer container = new DefaultMessageListenerContainer(mongoTemplate);
+            for (String collection : List.of(CatalogVersionService.BRANDS, CatalogVersionService.CATEGORIES)) {
+                container.register(ChangeStreamRequest.builder()
+                        .collection(collection)
+                        .publishTo(message -> catalogVersionService.bump(collection))
+                        .build(), Document.class);
+            }
+            container.start();
+            changeStreamContainer = container;
+            log.info("Watching brands and categories change streams");
+        }
+    }
+
+    @PreDestroy
+    public void stopChangeStreams() {
+        if (changeStreamContainer != null) {
+            changeStreamContainer.stop();
+        }
+    }
+
+    private <T> CatalogSnapshot<?> snapshot(String collection, Class<T> type, Function<T, String> idOf) {
+        CatalogSnapshot<?> snapshot = snapshots.get(collection);
+        if (snapshot != null && isCurrent(snapshot, collection)) {
+            return snapshot;
+        }
+        synchronized (this) {
+            snapshot = snapshots.get(collection);
+            if (snapshot == null || !isCurrent(snapshot, collection)) {
+                snapshot = build(collection, type, idOf);
+                snapshots.put(collection, snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    private boolean isCurrent(CatalogSnapshot<?> snapshot, String collection) {
+        return snapshot.getVersion().getVersion() == catalogVersionService.current(collection).getVersion();
+    }
+
+    private <T> CatalogSnapshot<T> build(String collection, Class<T> type, Function<T, String> idOf) {
+        // Stamp with the version read before the data, so a write racing the load only causes another rebuild
+        CatalogVersion version = catalogVersionService.current(collection);
+        List<T> items = mongoTemplate.findAll(type);
+
+        try {
+            Map<String, byte[]> itemJson = new HashMap<>();
+            for (T item : items) {
+                itemJson.put(idOf.apply(item), objectMapper.writeValueAsBytes(item));
+            }
+            log.debug("Built {} snapshot with {} entries at version {}", collection, items.size(), version.getVersion());
+            return new CatalogSnapshot<>(version, items, objectMapper.writeValueAsBytes(items), itemJson);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + collection + " snapshot", e);
+        }
+    }
+}
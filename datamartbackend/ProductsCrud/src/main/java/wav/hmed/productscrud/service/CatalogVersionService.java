@@ -0,0 +1,101 @@
+package wav.hmed.productscrud.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.WebRequest;
+import wav.hmed.productscrud.model.CatalogVersion;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-collection version counters backing the ETag / Last-Modified validators of the
+ * catalog read endpoints. Writes bump the counter in the {@code catalog_versions}
+ * collection; reads only consult the in-memory copy, which is re-synced from Mongo on a
+ * short interval so that bumps made by other replicas are picked up.
+ */
+@Service
+public class CatalogVersionService {
+
+    private static final Logger log = LogManager.getLogger(CatalogVersionService.class);
+
+    public static final String PRODUCTS = "products";
+    public static final String BRANDS = "brands";
+    public static final String CATEGORIES = "categories";
+
+    private static final Set<String> TRACKED = Set.of(PRODUCTS, BRANDS, CATEGORIES);
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, CatalogVersion> versions = new ConcurrentHashMap<>();
+    private final Instant startedAt = Instant.now();
+
+    public CatalogVersionService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public boolean isTracked(String collection) {
+        return TRACKED.contains(collection);
+    }
+
+    public CatalogVersion current(String collection) {
+        CatalogVersion version = versions.get(collection);
+        // Persisted versions start at 1, so version 0 never matches a validator issued after a write
+        return version != null ? version : new CatalogVersion(collection, 0L, startedAt);
+    }
+
+    /**
+     * Evaluates If-None-Match / If-Modified-Since against the current version of the collection.
+     * Must be called before the repository is queried, so that a concurrent write can only
+     * make the validator older than the body, never newer.
+     */
+    public boolean checkNotModified(WebRequest request, String collection) {
+        return checkNotModified(request, current(collection));
+    }
+
+    // For bodies served from a snapshot: validate against the version the snapshot was built from
+    public boolean checkNotModified(WebRequest request, CatalogVersion version) {
+        return request.checkNotModified(version.toETag(), version.getLastModified().toEpochMilli());
+    }
+
+    public void bump(String collection) {
+        Query query = Query.query(Criteria.where("_id").is(collection));
+        Update update = new Update().inc("version", 1).currentDate("lastModified");
+
+        try {
+            CatalogVersion updated = mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().returnNew(true).upsert(true), CatalogVersion.class);
+            if (updated != null) {
+                adopt(updated);
+            }
+        } catch (DataAccessException e) {
+            // Keep this replica's validators correct even if the shared counter is unavailable
+            log.warn("Could not persist version bump for '{}': {}", collection, e.getMessage());
+            versions.compute(collection, (key, old) ->
+                    new CatalogVersion(key, (old != null ? old.getVersion() : 0L) + 1, Instant.now()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.version.refresh-ms:5000}")
+    public void refresh() {
+        try {
+            mongoTemplate.findAll(CatalogVersion.class).forEach(this::adopt);
+        } catch (DataAccessException e) {
+            log.warn("Could not refresh catalog versions: {}", e.getMessage());
+        }
+    }
+
+    private void adopt(CatalogVersion version) {
+        versions.merge(version.getId(), version,
+                (old, candidate) -> candidate.getVersion() >= old.getVersion() ? candidate : old);
+    }
+}
@@ -2,6 +2,11 @@ package wav.hmed.productscrud.service;
 
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import wav.hmed.productscrud.model.Category;
 import wav.hmed.productscrud.repository.CategoryRepository;
@@ -15,6 +20,12 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
@@ -27,16 +38,18 @@ public class CategoryService {
         return categoryRepository.save(category);
     }
 
+    // Only the editable fields are written, so count increments from CatalogCounterService are never overwritten
     public Category updateCategory(String id, Category categoryDetails) {
-        Optional<Category> category = categoryRepository.findById(id);
-        if (category.isPresent()) {
-            Category existingCategory = category.get();
-            existingCategory.setName(categoryDetails.getName());
-            existingCategory.setCount(categoryDetails.getCount());
-            existingCategory.setIcon(categoryDetails.getIcon());
-            return categoryRepository.save(existingCategory);
+        Query query = Query.query(Criteria.where("id").is(id));
+        Update update = new Update()
+                .set("name", categoryDetails.getName())
+                .set("icon", categoryDetails.getIcon());
+        Category updated = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Category.class);
+        if (updated != null) {
+            catalogVersionService.bump(CatalogVersionService.CATEGORIES);
         }
-        return null;
+        return updated;
     }
 
     public void deleteCategory(String id) {
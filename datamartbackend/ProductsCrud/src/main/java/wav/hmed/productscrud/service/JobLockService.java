@@ -0,0 +1,62 @@
+package wav.hmed.productscrud.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import wav.hmed.productscrud.model.JobLock;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Lease-based locks for scheduled jobs, so that a job fires on only one ProductsCrud replica
+ * per run. A lease is taken by upserting the job's document only when the previous lease has
+ * run out; when another replica still holds it the upsert collides on {@code _id} and fails.
+ */
+@Service
+public class JobLockService {
+
+    private static final Logger log = LogManager.getLogger(JobLockService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final String instanceId;
+
+    public JobLockService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.instanceId = resolveInstanceId();
+    }
+
+    public boolean tryAcquire(String jobName, Duration lease) {
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria.where("_id").is(jobName).and("lockedUntil").lte(now));
+        Update update = new Update()
+                .set("lockedBy", instanceId)
+                .set("lockedAt", now)
+                .set("lockedUntil", now.plus(lease));
+
+        try {
+            mongoTemplate.upsert(query, update, JobLock.class);
+            log.debug("Acquired lock for job '{}' until {}", jobName, now.plus(lease));
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.debug("Job '{}' is locked by another instance, skipping", jobName);
+            return false;
+        }
+    }
+
+    private static String resolveInstanceId() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + suffix;
+        } catch (Exception e) {
+            return "productscrud-" + suffix;
+        }
+    }
+}
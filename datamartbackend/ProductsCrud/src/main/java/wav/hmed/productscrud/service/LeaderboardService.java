@@ -0,0 +1,273 @@
+package wav.hmed.productscrud.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.script.ResourceScriptSource;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import wav.hmed.productscrud.model.LeaderboardEntry;
+import wav.hmed.productscrud.model.LeaderboardWindow;
+import wav.hmed.productscrud.model.Product;
+import wav.hmed.productscrud.model.ProductDeletedEvent;
+import wav.hmed.productscrud.model.ProductPurchasedEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Best-seller leaderboards kept in Redis sorted sets, one per window (all-time, 24h, 7d) and scope
+ * (whole catalog, each category, each brand). Every purchase adds to all boards of the product with one
+ * script call per window; reading the top N is a ZREVRANGE plus one card query, independent of catalog
+ * size. A window's boards, landmark and registry share the {@code {window}} hash tag, so each script only
+ * touches keys it is passed and that live in one cluster slot.
+ *
+ * <p>Leaderboards are derived data: purchases and deletions are applied asynchronously, off the order path,
+ * failures are logged and dropped, and the all-time boards are seeded from {@code purchaseCount} when they
+ * are missing.
+ */
+@Service
+public class LeaderboardService {
+
+    private static final Logger log = LogManager.getLogger(LeaderboardService.class);
+    private static final String KEY_PREFIX = "leaderboard:";
+    private static final String SCOPE_ALL = "all";
+    private static final String REBASE_JOB = "leaderboard-rebase";
+    private static final int MAX_REBASE_ATTEMPTS = 3;
+    // Products whose decayed score drops below this are removed from the rolling boards
+    private static final double PRUNE_THRESHOLD = 0.01;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Value("${leaderboard.max-size:100}")
+    private int maxSize;
+
+    @Value("${leaderboard.rebase.lock-lease:PT1H}")
+    private Duration rebaseLockLease;
+
+    private final RedisScript<Long> recordScript = script("record");
+    private final RedisScript<Long> rebaseScript = script("rebase");
+
+    @Async
+    @EventListener
+    public void onProductPurchased(ProductPurchasedEvent event) {
+        Product product = event.getProduct();
+        if (product.getId() == null || event.getQuantity() <= 0) {
+            return;
+        }
+
+        String now = String.valueOf(System.currentTimeMillis() / 1000);
+        try {
+            for (LeaderboardWindow window : LeaderboardWindow.values()) {
+                List<String> keys = new ArrayList<>(List.of(landmarkKey(window), registryKey(window)));
+                for (String scope : scopesOf(product)) {
+                    keys.add(key(window, scope));
+                }
+                redisTemplate.execute(recordScript, keys,
+                        product.getId(), String.valueOf(event.getQuantity()), now, String.valueOf(window.getLambda()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not record purchase of {} in leaderboards: {}", product.getId(), e.getMessage());
+        }
+    }
+
+    // Removes the product from its current boards and, for rolling windows, from every registered board
+    @Async
+    @EventListener
+    public void onProductDeleted(ProductDeletedEvent event) {
+        Product product = event.getProduct();
+        if (product.getId() == null) {
+            return;
+        }
+
+        try {
+            for (LeaderboardWindow window : LeaderboardWindow.values()) {
+                Set<String> boards = new LinkedHashSet<>();
+                for (String scope : scopesOf(product)) {
+                    boards.add(key(window, scope));
+                }
+                if (window.isDecayed()) {
+                    Set<String> registered = redisTemplate.opsForSet().members(registryKey(window));
+                    if (registered != null) {
+                        boards.addAll(registered);
+                    }
+                }
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                    for (String board : boards) {
+                        stringConnection.zRem(board, product.getId());
+                    }
+                    return null;
+                });
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not remove {} from leaderboards: {}", product.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Top {@code limit} products of a window, optionally restricted to one category or one brand.
+     * Scores of the rolling windows are normalised to "decayed units sold as of now".
+     */
+    public List<LeaderboardEntry> getTop(LeaderboardWindow window, String category, String brand, int limit) {
+        String scope = category != null ? "category:" + category : brand != null ? "brand:" + brand : SCOPE_ALL;
+        int size = Math.min(Math.max(limit, 1), maxSize);
+
+        Set<ZSetOperations.TypedTuple<String>> top;
+        double scale = 1;
+        try {
+            top = redisTemplate.opsForZSet().reverseRangeWithScores(key(window, scope), 0, size - 1);
+            if (window.isDecayed()) {
+                String landmark = redisTemplate.opsForValue().get(landmarkKey(window));
+                if (landmark != null) {
+                    long now = System.currentTimeMillis() / 1000;
+                    scale = Math.exp(-window.getLambda() * (now - Long.parseLong(landmark)));
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not read leaderboard {}/{}: {}", window.getPath(), scope, e.getMessage());
+            return List.of();
+        }
+        if (top == null || top.isEmpty()) {
+            return List.of();
+        }
+
+        List<ObjectId> ids = new ArrayList<>();
+        Map<String, Double> scores = new HashMap<>();
+        for (ZSetOperations.TypedTuple<String> tuple : top) {
+            if (tuple.getValue() != null && ObjectId.isValid(tuple.getValue())) {
+                ids.add(new ObjectId(tuple.getValue()));
+                scores.put(tuple.getValue(), tuple.getScore() != null ? tuple.getScore() * scale : 0);
+            }
+        }
+
+        List<LeaderboardEntry> entries = new ArrayList<>();
+        for (Product product : productService.getProductCards(ids)) {
+            entries.add(new LeaderboardEntry(entries.size() + 1, scores.get(product.getId()), product));
+        }
+        return entries;
+    }
+
+    // Keeps decayed scores from growing without bound; runs on one replica
+    @Scheduled(cron = "${leaderboard.rebase.cron:0 15 4 * * *}")
+    public void rebase() {
+        if (!jobLockService.tryAcquire(REBASE_JOB, rebaseLockLease)) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        for (LeaderboardWindow window : LeaderboardWindow.values()) {
+            if (!window.isDecayed()) {
+                continue;
+            }
+            try {
+                // The script refuses (-1) if a board was registered after we read the registry; read it again
+                Long boards = -1L;
+                for (int attempt = 0; attempt < MAX_REBASE_ATTEMPTS && boards != null && boards < 0; attempt++) {
+                    List<String> keys = new ArrayList<>(List.of(landmarkKey(window), registryKey(window)));
+                    Set<String> registered = redisTemplate.opsForSet().members(registryKey(window));
+                    if (registered != null) {
+                        keys.addAll(registered);
+                    }
+                    boards = redisTemplate.execute(rebaseScript, keys,
+                            String.valueOf(window.getLambda()), String.valueOf(now), String.valueOf(PRUNE_THRESHOLD));
+                }
+                log.info("Rebased {} {} leaderboards", boards, window.getPath());
+            } catch (DataAccessException e) {
+                log.warn("Could not rebase {} leaderboards: {}", window.getPath(), e.getMessage());
+            }
+        }
+    }
+
+    // All-time boards can be rebuilt exactly from purchaseCount; rolling windows start empty
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedAllTime() {
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(key(LeaderboardWindow.ALL_TIME, SCOPE_ALL)))) {
+                return;
+            }
+            Query query = Query.query(Criteria.where("purchaseCount").gt(0))
+                    .with(Sort.by(Sort.Direction.DESC, "purchaseCount"));
+            query.fields().include("category", "brandName", "purchaseCount");
+
+            Map<String, Set<ZSetOperations.TypedTuple<String>>> boards = new HashMap<>();
+            for (Product product : mongoTemplate.find(query, Product.class)) {
+                for (String scope : scopesOf(product)) {
+                    boards.computeIfAbsent(key(LeaderboardWindow.ALL_TIME, scope), key -> new LinkedHashSet<>())
+                            .add(ZSetOperations.TypedTuple.of(product.getId(), product.getPurchaseCount().doubleValue()));
+                }
+            }
+            boards.forEach((key, tuples) -> redisTemplate.opsForZSet().add(key, tuples));
+            log.info("Seeded {} all-time leaderboards from purchase counts", boards.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not seed leaderboards: {}", e.getMessage());
+        }
+    }
+
+    private static Set<String> scopesOf(Product product) {
+        Set<String> scopes = new LinkedHashSet<>();
+        scopes.add(SCOPE_ALL);
+        if (product.getCategory() != null) {
+            product.getCategory().forEach(category -> scopes.add("category:" + category));
+        }
+        if (product.getBrandName() != null) {
+            scopes.add("brand:" + product.getBrandName());
+        }
+        return scopes;
+    }
+
+    private static String key(LeaderboardWindow window, String scope) {
+        return windowPrefix(window) + scope;
+    }
+
+    private static String landmarkKey(LeaderboardWindow window) {
+        return windowPrefix(window) + "landmark";
+    }
+
+    // Decayed boards of the window, for the rebase
+    private static String registryKey(LeaderboardWindow window) {
+        return windowPrefix(window) + "keys";
+    }
+
+    private static String windowPrefix(LeaderboardWindow window) {
+        return KEY_PREFIX + "{" + window.getPath() + "}:";
+    }
+
+    private static RedisScript<Long> script(String name) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("scripts/leaderboard/" + name + ".lua")));
+        script.setResultType(Long.class);
+        return script;
+    }
+}
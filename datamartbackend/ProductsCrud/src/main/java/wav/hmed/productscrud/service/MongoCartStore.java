@@ -0,0 +1,124 @@
+package wav.hmed.productscrud.service;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import wav.hmed.productscrud.model.Cart;
+import wav.hmed.productscrud.model.CartItem;
+import wav.hmed.productscrud.repository.CartRepository;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * Cart mutations are expressed as single update operators against the cart document
+ * (positional $inc/$set for existing lines, guarded $push for new ones, $pull for removal),
+ * so two tabs editing the same cart never overwrite each other's lines.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "cart.store", havingValue = "mongo", matchIfMissing = true)
+public class MongoCartStore implements CartStore {
+    private static final int MAX_CART_ATTEMPTS = 3;
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private final CartRepository cartRepository;
+    private final MongoTemplate mongoTemplate;
+
+    // Read-only: users without a cart get an empty view, the document is created by the first add
+    @Override
+    public Cart getOrCreateCart(String userId) {
+        return cartRepository.findByUserId(userId)
+                .orElseGet(() -> {
+                    Cart emptyCart = new Cart();
+                    emptyCart.setUserId(userId);
+                    emptyCart.setItems(new ArrayList<>());
+                    emptyCart.setLoyaltyPoints(0);
+                    emptyCart.setLastModified(new Date());
+                    return emptyCart;
+                });
+    }
+
+    @Override
+    public Cart addItem(String userId, CartItem item) {
+        String productId = item.getProductId();
+
+        for (int attempt = 0; attempt < MAX_CART_ATTEMPTS; attempt++) {
+            // Existing line: bump its quantity in place and take the product's current price
+            Query existingLine = Query.query(Criteria.where("userId").is(userId).and("items.productId").is(productId));
+            Cart cart = mongoTemplate.findAndModify(existingLine,
+                    new Update().inc("items.$.quantity", item.getQuantity())
+                            .set("items.$.price", item.getPrice())
+                            .set("items.$.discount", item.getDiscount())
+                            .set("items.$.unitPriceCents", item.getUnitPriceCents())
+                            .currentDate("lastModified"),
+                    RETURN_NEW, Cart.class);
+            if (cart != null) {
+                return cart;
+            }
+
+            // New line: the $ne guard keeps a concurrent add from pushing the same product twice
+            Query missingLine = Query.query(Criteria.where("userId").is(userId).and("items.productId").ne(productId));
+            cart = mongoTemplate.findAndModify(missingLine,
+                    new Update().push("items", item).currentDate("lastModified"),
+                    RETURN_NEW, Cart.class);
+            if (cart != null) {
+                return cart;
+            }
+
+            // Neither matched, so there is no cart yet
+            createCartIfAbsent(userId);
+        }
+
+        throw new RuntimeException("Could not update cart for user: " + userId);
+    }
+
+    @Override
+    public Cart updateQuantity(String userId, String productId, int quantity) {
+        Query line = Query.query(Criteria.where("userId").is(userId).and("items.productId").is(productId));
+        Update update = quantity <= 0
+                ? new Update().pull("items", new Document("productId", productId))
+                : new Update().set("items.$.quantity", quantity);
+
+        Cart cart = mongoTemplate.findAndModify(line, update.currentDate("lastModified"), RETURN_NEW, Cart.class);
+        if (cart == null) {
+            throw new RuntimeException("Item not found in cart");
+        }
+        return cart;
+    }
+
+    @Override
+    public Cart removeItem(String userId, String productId) {
+        Cart cart = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("userId").is(userId)),
+                new Update().pull("items", new Document("productId", productId)).currentDate("lastModified"),
+                RETURN_NEW, Cart.class);
+        return cart != null ? cart : getOrCreateCart(userId);
+    }
+
+    @Override
+    public void clear(String userId) {
+        cartRepository.deleteByUserId(userId);
+    }
+
+    private void createCartIfAbsent(String userId) {
+        try {
+            mongoTemplate.upsert(
+                    Query.query(Criteria.where("userId").is(userId)),
+                    new Update()
+                            .setOnInsert("items", new ArrayList<>())
+                            .setOnInsert("loyaltyPoints", 0)
+                            .currentDate("lastModified"),
+                    Cart.class);
+        } catch (DuplicateKeyException e) {
+            // Lost the race to another first add; the cart exists now, which is all we need
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package wav.hmed.productscrud.service;
+
+import com.mongodb.MongoException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import wav.hmed.productscrud.model.Pricing;
+import wav.hmed.productscrud.model.Product;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.or;
+
+/**
+ * Computes effective prices once, when a product's price or discount is written, and stores them in
+ * cents ({@code priceCents}, {@code finalPriceCents}). Carts, checkout and listings read the stored values
+ * instead of reapplying the discount each with their own formula, and price filters and sorts run on the
+ * indexed {@code finalPriceCents}.
+ */
+@Service
+public class PricingService {
+
+    private static final Logger log = LogManager.getLogger(PricingService.class);
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Runs on every product save through ProductPricingCallback; call it directly for writes that bypass saves
+    public void apply(Product product) {
+        product.setPriceCents(Pricing.toCents(product.getPrice()));
+        product.setFinalPriceCents(Pricing.discountedCents(product.getPriceCents(), product.getDiscount()));
+    }
+
+    // Current unit prices in cents by product id; unknown or unpriced products are left out
+    public Map<String, Long> currentUnitPrices(Collection<String> productIds) {
+        List<ObjectId> ids = productIds.stream()
+                .filter(ObjectId::isValid)
+                .map(ObjectId::new)
+                .toList();
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("price", "discount", "finalPriceCents");
+        Map<String, Long> prices = new HashMap<>();
+        for (Product product : mongoTemplate.find(query, Product.class)) {
+            if (product.getFinalPriceCents() != null || product.getPrice() != null) {
+                prices.put(product.getId(), unitPriceCents(product));
+            }
+        }
+        return prices;
+    }
+
+    // Unit price to charge for a product, in cents
+    public long unitPriceCents(Product product) {
+        Long cents = product.getFinalPriceCents() != null
+                ? product.getFinalPriceCents()
+                : Pricing.discountedCents(Pricing.toCents(product.getPrice()), product.getDiscount());
+        if (cents == null) {
+            throw new IllegalStateException("Product has no price: " + product.getId());
+        }
+        return cents;
+    }
+
+    /**
+     * Products whose effective price lies in [min, max] (either bound optional), ordered by that price.
+     */
+    public List<Product> findByPriceRange(Double min, Double max, Sort.Direction direction, int page, int size) {
+        if (min != null && max != null && min > max) {
+            throw new IllegalArgumentException("min must not be greater than max");
+        }
+        Criteria price = Criteria.where("finalPriceCents");
+        if (min != null) {
+            price.gte(Pricing.toCents(min));
+        }
+        if (max != null) {
+            price.lte(Pricing.toCents(max));
+        }
+        if (min == null && max == null) {
+            price.ne(null);
+        }
+
+        Query query = Query.query(price)
+                .with(Sort.by(direction, "finalPriceCents").and(Sort.by("_id")))
+                .skip((long) Math.max(page, 0) * Math.min(Math.max(size, 1), MAX_PAGE_SIZE))
+                .limit(Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        return mongoTemplate.find(query, Product.class);
+    }
+
+    // Fills the stored prices of documents written before they existed
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long updated = recompute(or(exists("priceCents", false), exists("finalPriceCents", false)));
+        if (updated > 0) {
+            log.info("Computed stored prices for {} products", updated);
+        }
+    }
+
+    // Bulk imports $set price and discount directly; reprice what they touched
+    public long recomputeChangedSince(Instant since) {
+        return recompute(gte("updatedAt", since));
+    }
+
+    /**
+     * Recomputes the stored prices server-side with an update pipeline, using the same half-up rounding as
+     * {@link Pricing}: priceCents = floor(price * 100 + 0.5), finalPriceCents =
+     * floor((priceCents * (100 - discount) + 50) / 100) with the discount clamped to 0..100.
+     */
+    private long recompute(Bson filter) {
+        Document priceCents = new Document("$toLong", new Document("$floor", new Document("$add", List.of(
+                new Document("$multiply", List.of("$price", 100)), 0.5))));
+        Document percent = new Document("$min", List.of(100,
+                new Document("$max", List.of(0, new Document("$ifNull", List.of("$discount", 0))))));
+        Document finalPriceCents = new Document("$toLong", new Document("$floor", new Document("$divide", List.of(
+                new Document("$add", List.of(
+                        new Document("$multiply", List.of("$priceCents", new Document("$subtract", List.of(100, percent)))),
+                        50)),
+                100))));
+
+        try {
+            return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class))
+                    .updateMany(filter, List.of(
+                            new Document("$set", new Document("priceCents", priceCents)),
+                            new Document("$set", new Document("finalPriceCents", finalPriceCents))))
+                    .getModifiedCount();
+        } catch (MongoException e) {
+            log.warn("Could not compute stored prices: {}", e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -1,31 +1,84 @@
 package wav.hmed.productscrud.service;
 
+import com.mongodb.MongoException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import wav.hmed.productscrud.model.Product;
+import wav.hmed.productscrud.model.ProductDeletedEvent;
+import wav.hmed.productscrud.model.ProductPurchasedEvent;
+import wav.hmed.productscrud.model.RatingSubmission;
 import wav.hmed.productscrud.repository.ProductRepository;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
     private static final Logger log = LogManager.getLogger(ProductService.class);
+    private static final String NEW_STATUS_JOB = "product-new-status";
+    private static final int NEW_PRODUCT_DAYS = 7;
+    private static final int RATING_BATCH_SIZE = 1000;
+    // Everything a product tile needs; descriptions are left out of list payloads
+    private static final String[] CARD_FIELDS = {
+            "name", "price", "rating", "ratingSum", "ratingCount", "reviews", "image", "category",
+            "brandName", "isNew", "isFeatured", "clearance", "discount", "stock", "purchaseCount", "finalPriceCents"
+    };
 
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CatalogCounterService catalogCounterService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Held for most of the daily interval so other replicas skip the same run
+    @Value("${products.new-status.lock-lease:PT23H}")
+    private Duration newStatusLockLease;
+
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
@@ -38,31 +91,69 @@ public class ProductService {
     public Product createProduct(Product product) {
         product.setId((ObjectId)null); // Let MongoDB generate the ID
         product.setPostedDate(Instant.now());
-        return productRepository.save(product);
+        initRatingAggregates(product);
+        Product savedProduct = productRepository.save(product);
+        catalogCounterService.productCreated(savedProduct);
+        return savedProduct;
     }
 
     public Product updateProduct(ObjectId id, Product product) {
         Product existingProduct = getProductById(String.valueOf(id));
         product.setId(id);
         product.setPostedDate(existingProduct.getPostedDate()); // Preserve original posted date
-        return productRepository.save(product);
+        // Rating aggregates are only ever changed through $inc
+        product.setRatingSum(existingProduct.getRatingSum());
+        product.setRatingCount(existingProduct.getRatingCount());
+        Product savedProduct = productRepository.save(product);
+        catalogCounterService.productUpdated(existingProduct, savedProduct);
+        return savedProduct;
     }
 
     public void deleteProduct(String id) {
-        productRepository.deleteById(id);
+        // findAndRemove hands back the deleted product, so only the request that actually deleted it adjusts counts
+        Product deletedProduct = mongoTemplate.findAndRemove(Query.query(Criteria.where("_id").is(toObjectId(id))), Product.class);
+        if (deletedProduct != null) {
+            catalogVersionService.bump(CatalogVersionService.PRODUCTS);
+            catalogCounterService.productDeleted(deletedProduct);
+            eventPublisher.publishEvent(new ProductDeletedEvent(deletedProduct));
+        }
+    }
+
+    // Card projections for the given ids in one $in query, in the given order; unknown ids are skipped
+    public List<Product> getProductCards(List<ObjectId> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Query query = Query.query(Criteria.where("_id").in(productIds));
+        query.fields().include(CARD_FIELDS);
+        Map<String, Product> byId = mongoTemplate.find(query, Product.class).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        return productIds.stream()
+                .map(id -> byId.get(id.toHexString()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     public List<Product> searchProducts(String searchTerm) {
         return productRepository.searchProducts(searchTerm);
     }
 
-    @Transactional
+    // Counters are updated in place so they never overwrite concurrent rating increments
     public Product incrementPurchaseCount(String productId, int quantity) {
         log.info("Incrementing purchase count for productId: {} by quantity: {}", productId, quantity);
 
-        Product product = getProductById(productId);
-        product.incrementPurchaseCount(quantity);
-        Product savedProduct = productRepository.save(product);
+        Query query = Query.query(Criteria.where("_id").is(toObjectId(productId)));
+        Product savedProduct = mongoTemplate.findAndModify(query,
+                new Update().inc("purchaseCount", quantity).currentDate("updatedAt"),
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (savedProduct == null) {
+            log.error("Product not found with id: {}", productId);
+            throw new RuntimeException("Product not found with id: " + productId);
+        }
+        catalogVersionService.bump(CatalogVersionService.PRODUCTS);
+        catalogCounterService.productSold(savedProduct, quantity);
+        eventPublisher.publishEvent(new ProductPurchasedEvent(savedProduct, quantity));
 
         log.info("Purchase count updated. ProductId: {}, New count: {}",
                 productId, savedProduct.getPurchaseCount());
@@ -70,23 +161,28 @@ public class ProductService {
         return savedProduct;
     }
 
-    @Transactional
     public Product reduceProductStock(String productId, int quantity) {
         log.info("Reducing stock for productId: {} by quantity: {}", productId, quantity);
 
-        Product product = getProductById(productId);
-
-        // Ensure we're working with the existing product's ID
-        ObjectId existingId = product.getId() != null ? new ObjectId(product.getId()) : null;
-        if (existingId == null) {
-            throw new RuntimeException("Product ID cannot be null");
+        // The stock guard is part of the filter, so two concurrent checkouts cannot oversell
+        Query query = Query.query(Criteria.where("_id").is(toObjectId(productId)).and("stock").gte(quantity));
+        Update update = new Update()
+                .inc("stock", -quantity)
+                .inc("purchaseCount", quantity)
+                .inc("reviews", 1)
+                .currentDate("updatedAt");
+        Product savedProduct = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+
+        if (savedProduct == null) {
+            Product product = getProductById(productId); // Throws if the product does not exist
+            log.error("Insufficient stock for reduction. Current stock: {}, Requested quantity: {}",
+                    product.getStock(), quantity);
+            throw new IllegalStateException("Insufficient stock");
         }
-
-        product.reduceStock(quantity);
-
-        // Ensure the ID is preserved
-        product.setId(existingId);
-        Product savedProduct = productRepository.save(product);
+        catalogVersionService.bump(CatalogVersionService.PRODUCTS);
+        catalogCounterService.productSold(savedProduct, quantity);
+        eventPublisher.publishEvent(new ProductPurchasedEvent(savedProduct, quantity));
 
         log.info("Product stock updated. ProductId: {}, New stock: {}, Purchase count: {}",
                 productId, savedProduct.getStock(), savedProduct.getPurchaseCount());
@@ -110,60 +206,147 @@ public class ProductService {
     }
 
 
-    @Transactional
     public Product updateProductRating(String productId, int newRating) {
         log.info("Updating rating for productId: {} with new rating: {}", productId, newRating);
 
-        Product product = getProductById(productId);
-
-        double currentTotalRating = product.getRating() * product.getReviews();
-        int newTotalReviews = product.getReviews() + 1;
-        double newAverageRating = (currentTotalRating + newRating) / newTotalReviews;
-
-        newAverageRating = Math.round(newAverageRating * 10.0) / 10.0;
-
-        product.setRating(newAverageRating);
-        product.setReviews(newTotalReviews);
+        Query query = Query.query(Criteria.where("_id").is(toObjectId(productId)));
+        Update update = new Update()
+                .inc("ratingSum", newRating)
+                .inc("ratingCount", 1)
+                .inc("reviews", 1)
+                .currentDate("updatedAt");
+        Product updatedProduct = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (updatedProduct == null) {
+            log.error("Product not found with id: {}", productId);
+            throw new RuntimeException("Product not found with id: " + productId);
+        }
+        catalogVersionService.bump(CatalogVersionService.PRODUCTS);
 
-        Product updatedProduct = productRepository.save(product);
         log.info("Product rating updated. ProductId: {}, New rating: {}, Total reviews: {}",
                 productId, updatedProduct.getRating(), updatedProduct.getReviews());
 
         return updatedProduct;
     }
 
-    @Scheduled(fixedRate = 24 * 60 * 60 * 1000) // Run daily
-    @Transactional
-    public void updateNewProductStatus() {
-        log.info("Updating product 'isNew' status");
-
-        List<Product> newProducts = productRepository.findByIsNewTrue();
-
-        for (Product product : newProducts) {
-            Instant postedDate = product.getPostedDate();
-            if (postedDate == null) {
-                log.warn("Product {} has null posted date", product.getName());
+    /**
+     * Applies many ratings at once, e.g. from a review import. Ratings are summed per product in
+     * memory and written as one unordered bulk of $inc updates per batch, so a product with
+     * thousands of incoming ratings costs a single write.
+     */
+    public Map<String, Integer> ingestRatings(List<RatingSubmission> submissions) {
+        Map<ObjectId, long[]> totals = new LinkedHashMap<>();
+        int rejected = 0;
+
+        for (RatingSubmission submission : submissions) {
+            Integer rating = submission.getRating();
+            String productId = submission.getProductId();
+            if (rating == null || rating < 1 || rating > 10 || productId == null || !ObjectId.isValid(productId)) {
+                rejected++;
                 continue;
             }
+            long[] total = totals.computeIfAbsent(new ObjectId(productId), id -> new long[2]);
+            total[0] += rating;
+            total[1]++;
+        }
+
+        int matched = 0;
+        List<Map.Entry<ObjectId, long[]>> entries = new ArrayList<>(totals.entrySet());
+        for (int from = 0; from < entries.size(); from += RATING_BATCH_SIZE) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+            for (Map.Entry<ObjectId, long[]> entry : entries.subList(from, Math.min(from + RATING_BATCH_SIZE, entries.size()))) {
+                long[] total = entry.getValue();
+                bulk.updateOne(Query.query(Criteria.where("_id").is(entry.getKey())), new Update()
+                        .inc("ratingSum", total[0])
+                        .inc("ratingCount", total[1])
+                        .inc("reviews", total[1])
+                        .currentDate("updatedAt"));
+            }
+            matched += bulk.execute().getMatchedCount();
+        }
 
-            long daysSincePosted = calculateDaysSincePosted(postedDate);
+        if (matched > 0) {
+            catalogVersionService.bump(CatalogVersionService.PRODUCTS);
+        }
+        log.info("Ingested ratings. Accepted: {}, Rejected: {}, Products updated: {}",
+                submissions.size() - rejected, rejected, matched);
+
+        return Map.of(
+                "accepted", submissions.size() - rejected,
+                "rejected", rejected,
+                "productsUpdated", matched
+        );
+    }
 
-            if (daysSincePosted > 7) {
-                product.setIsNew(false);
-                productRepository.save(product);
+    // Seeds the exact aggregates from the legacy rounded average so existing reviews keep their weight
+    void initRatingAggregates(Product product) {
+        int reviews = product.getReviews() != null ? product.getReviews() : 0;
+        Double rating = product.getRating();
+        if (rating != null && reviews > 0) {
+            product.setRatingSum(Math.round(rating * reviews));
+            product.setRatingCount(reviews);
+        } else {
+            product.setRatingSum(0L);
+            product.setRatingCount(0);
+        }
+    }
 
-                log.info("Updated product '{}' isNew status. Days since posted: {}",
-                        product.getName(), daysSincePosted);
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillRatingAggregates() {
+        Document ratingCount = new Document("$toInt", new Document("$ifNull", List.of("$reviews", 0)));
+        Document ratingSum = new Document("$toLong", new Document("$round", List.of(
+                new Document("$multiply", List.of(
+                        new Document("$ifNull", List.of("$rating", 0)),
+                        new Document("$ifNull", List.of("$reviews", 0)))),
+                0)));
+
+        try {
+            long migrated = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class))
+                    .updateMany(
+                            Filters.exists("ratingCount", false),
+                            List.of(new Document("$set", new Document("ratingCount", ratingCount)
+                                    .append("ratingSum", ratingSum))))
+                    .getModifiedCount();
+            if (migrated > 0) {
+                log.info("Initialised rating aggregates for {} products", migrated);
             }
+        } catch (MongoException e) {
+            log.warn("Could not initialise rating aggregates: {}", e.getMessage());
         }
+    }
 
-        log.info("Completed updating product 'isNew' status");
+    private ObjectId toObjectId(String id) {
+        if (id == null || !ObjectId.isValid(id)) {
+            log.error("Invalid ObjectId format: {}", id);
+            throw new RuntimeException("Invalid ObjectId format: " + id);
+        }
+        return new ObjectId(id);
     }
 
-    private long calculateDaysSincePosted(Instant postedDate) {
-        return ChronoUnit.DAYS.between(
-                postedDate.atZone(ZoneId.systemDefault()).toLocalDate(),
-                LocalDate.now()
-        );
+    @Scheduled(fixedRate = 24 * 60 * 60 * 1000) // Run daily
+    public void updateNewProductStatus() {
+        if (!jobLockService.tryAcquire(NEW_STATUS_JOB, newStatusLockLease)) {
+            return;
+        }
+
+        log.info("Updating product 'isNew' status");
+
+        // Products stay new until more than 7 calendar days have passed since they were posted
+        Instant cutoff = LocalDate.now()
+                .minusDays(NEW_PRODUCT_DAYS)
+                .atStartOfDay(ZoneId.systemDefault())
+                .toInstant();
+
+        // Served by the partial new_arrivals index; products without a posted date never match
+        Query query = Query.query(Criteria.where("isNew").is(true).and("postedDate").lt(cutoff));
+        UpdateResult result = mongoTemplate.updateMulti(query, Update.update("isNew", false).currentDate("updatedAt"), Product.class);
+
+        long modified = result.getModifiedCount();
+        meterRegistry.counter("products.new_status.expired").increment(modified);
+        if (modified > 0) {
+            catalogVersionService.bump(CatalogVersionService.PRODUCTS);
+        }
+
+        log.info("Completed updating product 'isNew' status. Products no longer new: {}", modified);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,406 @@
+package wav.hmed.productscrud.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.script.ResourceScriptSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import wav.hmed.productscrud.model.Cart;
+import wav.hmed.productscrud.model.CartItem;
+import wav.hmed.productscrud.repository.CartRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps each cart as a Redis hash ({@code cart:<userId>}) and writes it behind to the carts collection.
+ *
+ * <p>Every mutation is one Lua script that updates the line and returns the whole hash, followed by an SADD
+ * that marks the cart dirty. The scripts only touch the cart's own key, so they run on Redis Cluster, and
+ * the dirty set lives outside the {@code cart:} namespace so it cannot collide with a user id. Carts are
+ * loaded from Mongo lazily on the first access after a miss.
+ *
+ * <p>A scheduled flusher claims dirty carts in batches, moving them into its own processing set, and
+ * persists them with one unordered bulk write; a batch leaves the processing set only once it is written.
+ * Each flusher holds a lease while it runs, and the batch of a flusher whose lease lapses (it crashed) is
+ * requeued by the others. A changed cart has no TTL until it has been written, so it cannot expire
+ * unflushed; whatever is still dirty is flushed on shutdown.
+ *
+ * <p>Redis must not evict these keys (use a {@code volatile-*} or {@code noeviction} policy with enough
+ * headroom), otherwise changes made since the last flush are lost.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "cart.store", havingValue = "redis")
+public class RedisCartStore implements CartStore {
+    private static final String CART_KEY_PREFIX = "cart:";
+    private static final String DIRTY_KEY = "cart-dirty";
+    // Tagged with the dirty set's name so the claim and requeue scripts stay in its slot
+    private static final String FLUSHERS_KEY = "{cart-dirty}:flushers";
+    private static final String PROCESSING_KEY_PREFIX = "{cart-dirty}:flushing:";
+    private static final String LEASE_KEY_PREFIX = "{cart-dirty}:lease:";
+    // Where the dirty set lived before it moved out of the cart namespace; drained by the flusher
+    private static final String LEGACY_DIRTY_KEY = "cart:dirty";
+    private static final String LINE = "line:";
+    private static final String QTY = "qty:";
+    private static final String POS = "pos:";
+    private static final String META_LOADED = "meta:loaded";
+    private static final String META_ID = "meta:id";
+    private static final String META_LOYALTY_POINTS = "meta:loyaltyPoints";
+    private static final String META_LAST_MODIFIED = "meta:lastModified";
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final StringRedisTemplate redisTemplate;
+    private final CartRepository cartRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final RedisScript<List> loadScript = script("load");
+    private final RedisScript<List> addScript = script("add");
+    private final RedisScript<List> updateScript = script("update");
+    private final RedisScript<List> removeScript = script("remove");
+    private final RedisScript<List> clearScript = script("clear");
+    private final RedisScript<List> claimScript = script("claim");
+    private final RedisScript<Long> requeueScript = script("requeue", Long.class);
+    private final String flusherId = UUID.randomUUID().toString();
+
+    @Value("${cart.redis.ttl:P7D}")
+    private Duration ttl;
+
+    @Value("${cart.redis.flush-batch:500}")
+    private int flushBatchSize;
+
+    @Value("${cart.redis.flusher-lease:PT1M}")
+    private Duration flusherLease;
+
+    public RedisCartStore(StringRedisTemplate redisTemplate, CartRepository cartRepository,
+                          MongoTemplate mongoTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.cartRepository = cartRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Cart getOrCreateCart(String userId) {
+        Map<Object, Object> hash = redisTemplate.opsForHash().entries(cartKey(userId));
+        if (hash.isEmpty()) {
+            return toCart(userId, load(userId));
+        }
+        return toCart(userId, hash);
+    }
+
+    @Override
+    public Cart addItem(String userId, CartItem item) {
+        String lineJson = writeLine(item);
+        return mutate(userId, addScript,
+                item.getProductId(), String.valueOf(item.getQuantity()), lineJson, now());
+    }
+
+    @Override
+    public Cart updateQuantity(String userId, String productId, int quantity) {
+        return mutate(userId, updateScript,
+                productId, String.valueOf(quantity), now());
+    }
+
+    @Override
+    public Cart removeItem(String userId, String productId) {
+        return mutate(userId, removeScript,
+                productId, now());
+    }
+
+    @Override
+    public void clear(String userId) {
+        redisTemplate.execute(clearScript, List.of(cartKey(userId)), now());
+        markDirty(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${cart.redis.flush-ms:1000}")
+    public void flush() {
+        try {
+            // The old key is also the cart key of a user whose id is "dirty", so only drain it while it is a set
+            if (redisTemplate.type(LEGACY_DIRTY_KEY) == DataType.SET) {
+                drainLegacyDirtySet();
+            }
+            requeueAbandoned();
+            while (flushBatch() == flushBatchSize) {
+                // Keep draining while full batches come back
+            }
+        } catch (Exception e) {
+            log.error("Cart write-behind failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing dirty carts before shutdown");
+        flush();
+        try {
+            // Give up the lease so another replica requeues anything this one could not write
+            redisTemplate.delete(leaseKey(flusherId));
+            requeue(flusherId);
+        } catch (Exception e) {
+            log.warn("Could not release the cart flusher lease: {}", e.getMessage());
+        }
+    }
+
+    // Claims up to one batch of dirty carts and persists them; returns how many were claimed
+    private int flushBatch() {
+        List<?> claimed = redisTemplate.execute(claimScript,
+                List.of(DIRTY_KEY, processingKey(flusherId), FLUSHERS_KEY, leaseKey(flusherId)),
+                String.valueOf(flushBatchSize), flusherId, String.valueOf(flusherLease.toMillis()));
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+        List<String> userIds = claimed.stream().map(String::valueOf).toList();
+
+        List<Object> snapshots = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String userId : userIds) {
+                stringConnection.hGetAll(cartKey(userId));
+            }
+            return null;
+        });
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Cart.class);
+        List<String> written = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            Map<?, ?> hash = (Map<?, ?>) snapshots.get(i);
+            if (hash == null || hash.isEmpty()) {
+                continue; // Deleted from Redis; nothing left to write
+            }
+            Cart cart = toCart(userIds.get(i), hash);
+            Query query = Query.query(Criteria.where("userId").is(cart.getUserId()));
+            if (cart.getItems().isEmpty()) {
+                bulk.remove(query);
+            } else {
+                bulk.upsert(query, new Update()
+                        .set("items", cart.getItems())
+                        .set("loyaltyPoints", cart.getLoyaltyPoints())
+                        .set("lastModified", cart.getLastModified()));
+            }
+            written.add(userIds.get(i));
+        }
+
+        // On failure the batch stays in the processing set and the next run retries it
+        if (!written.isEmpty()) {
+            bulk.execute();
+            // Persisted, so the carts may expire again; one changed meanwhile is dirty and gets flushed next run
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String userId : written) {
+                    stringConnection.pExpire(cartKey(userId), ttl.toMillis());
+                }
+                return null;
+            });
+        }
+        redisTemplate.delete(processingKey(flusherId));
+        log.debug("Flushed {} carts to Mongo", written.size());
+        return userIds.size();
+    }
+
+    // Flushers that stopped renewing their lease died mid-batch; put their claimed carts back
+    private void requeueAbandoned() {
+        Set<String> flushers = redisTemplate.opsForSet().members(FLUSHERS_KEY);
+        if (flushers == null) {
+            return;
+        }
+        for (String id : flushers) {
+            if (!id.equals(flusherId)) {
+                requeue(id);
+            }
+        }
+    }
+
+    private void requeue(String id) {
+        Long requeued = redisTemplate.execute(requeueScript,
+                List.of(DIRTY_KEY, processingKey(id), FLUSHERS_KEY, leaseKey(id)), id);
+        if (requeued != null && requeued > 0) {
+            log.info("Requeued {} carts claimed by cart flusher {}", requeued, id);
+        }
+    }
+
+    // Copies the pre-move dirty set over before removing it, so a crash in between only flushes carts twice
+    private void drainLegacyDirtySet() {
+        Set<String> userIds = redisTemplate.opsForSet().members(LEGACY_DIRTY_KEY);
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        String[] ids = userIds.toArray(new String[0]);
+        redisTemplate.opsForSet().add(DIRTY_KEY, ids);
+        redisTemplate.opsForSet().remove(LEGACY_DIRTY_KEY, (Object[]) ids);
+    }
+
+    private Cart mutate(String userId, RedisScript<List> script, String... args) {
+        List<String> keys = List.of(cartKey(userId));
+        for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+            List<?> result = redisTemplate.execute(script, keys, (Object[]) args);
+            String status = String.valueOf(result.get(0));
+            switch (status) {
+                case "ok":
+                    markDirty(userId);
+                    return toCart(userId, toMap(result));
+                case "absent":
+                    throw new RuntimeException("Item not found in cart");
+                default:
+                    load(userId); // Cache miss: seed from Mongo and retry
+            }
+        }
+        throw new RuntimeException("Could not update cart for user: " + userId);
+    }
+
+    // Copies the persisted cart (or an empty one) into Redis; a concurrent load wins harmlessly
+    private Map<Object, Object> load(String userId) {
+        List<String> args = new ArrayList<>();
+        args.add(ttlMillis());
+        args.add(META_LOADED);
+        args.add("1");
+
+        cartRepository.findByUserId(userId).ifPresent(cart -> {
+            if (cart.getId() != null) {
+                args.add(META_ID);
+                args.add(cart.getId());
+            }
+            if (cart.getLoyaltyPoints() != null) {
+                args.add(META_LOYALTY_POINTS);
+                args.add(String.valueOf(cart.getLoyaltyPoints()));
+            }
+            if (cart.getLastModified() != null) {
+                args.add(META_LAST_MODIFIED);
+                args.add(String.valueOf(cart.getLastModified().getTime()));
+            }
+            List<CartItem> items = cart.getItems() != null ? cart.getItems() : List.of();
+            for (int pos = 0; pos < items.size(); pos++) {
+                CartItem item = items.get(pos);
+                args.add(LINE + item.getProductId());
+                args.add(writeLine(item));
+                args.add(QTY + item.getProductId());
+                args.add(String.valueOf(item.getQuantity()));
+                args.add(POS + item.getProductId());
+                args.add(String.valueOf(pos));
+            }
+            args.add("meta:seq");
+            args.add(String.valueOf(items.size()));
+        });
+
+        List<?> result = redisTemplate.execute(loadScript, List.of(cartKey(userId)), args.toArray());
+        return toMap(result);
+    }
+
+    private Cart toCart(String userId, Map<?, ?> hash) {
+        Map<String, String> fields = new HashMap<>();
+        hash.forEach((key, value) -> fields.put(String.valueOf(key), String.valueOf(value)));
+
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        String id = fields.get(META_ID);
+        if (id != null && ObjectId.isValid(id)) {
+            cart.setId(new ObjectId(id));
+        }
+        cart.setLoyaltyPoints(Integer.parseInt(fields.getOrDefault(META_LOYALTY_POINTS, "0")));
+        String lastModified = fields.get(META_LAST_MODIFIED);
+        cart.setLastModified(lastModified != null ? new Date(Long.parseLong(lastModified)) : new Date());
+
+        List<CartItem> items = new ArrayList<>();
+        Map<String, Long> positions = new HashMap<>();
+        fields.forEach((field, value) -> {
+            if (!field.startsWith(LINE)) {
+                return;
+            }
+            String productId = field.substring(LINE.length());
+            CartItem item = readLine(value);
+            item.setProductId(productId);
+            item.setQuantity(Integer.parseInt(fields.getOrDefault(QTY + productId, "0")));
+            items.add(item);
+            positions.put(productId, Long.parseLong(fields.getOrDefault(POS + productId, "0")));
+        });
+        items.sort(Comparator.comparing(item -> positions.get(item.getProductId())));
+        cart.setItems(items);
+        return cart;
+    }
+
+    // Script replies are the status followed by the flattened HGETALL
+    private Map<Object, Object> toMap(List<?> result) {
+        Map<Object, Object> hash = new HashMap<>();
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            hash.put(result.get(i), result.get(i + 1));
+        }
+        return hash;
+    }
+
+    private String writeLine(CartItem item) {
+        try {
+            return objectMapper.writeValueAsString(item);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize cart item", e);
+        }
+    }
+
+    private CartItem readLine(String json) {
+        try {
+            return objectMapper.readValue(json, CartItem.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not read cart item", e);
+        }
+    }
+
+    // After the script, so a flush that pops the cart in between still sees this change on its next run
+    private void markDirty(String userId) {
+        redisTemplate.opsForSet().add(DIRTY_KEY, userId);
+    }
+
+    private String cartKey(String userId) {
+        return CART_KEY_PREFIX + userId;
+    }
+
+    private String ttlMillis() {
+        return String.valueOf(ttl.toMillis());
+    }
+
+    private static String processingKey(String flusherId) {
+        return PROCESSING_KEY_PREFIX + flusherId;
+    }
+
+    private static String leaseKey(String flusherId) {
+        return LEASE_KEY_PREFIX + flusherId;
+    }
+
+    private static String now() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
+    private static RedisScript<List> script(String name) {
+        return script(name, List.class);
+    }
+
+    private static <T> RedisScript<T> script(String name, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("scripts/cart/" + name + ".lua")));
+        script.setResultType(resultType);
+        return script;
+    }
+}
@@ -1,28 +1,51 @@
 package wav.hmed.productscrud.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 
+import java.util.Map;
+import java.util.Optional;
+
 @Service
 public class UserService {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
     private final RestTemplate restTemplate;
 
     @Value("${auth.service.url}")
     private String authServiceUrl;
 
+    @Autowired
+    private JwksTokenVerifier jwksTokenVerifier;
+
     public UserService() {
         this.restTemplate = new RestTemplate();
     }
 
     public String getCurrentUserId(String authHeader) {
-        System.out.println();
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             throw new IllegalArgumentException("Invalid authorization header");
         }
 
+        // Tokens carrying a user id are verified locally; older ones still go through the auth service
+        try {
+            Optional<Claims> claims = jwksTokenVerifier.verify(authHeader.substring(7));
+            String userId = claims.map(body -> body.get("uid", String.class)).orElse(null);
+            if (userId != null) {
+                return userKey(userId);
+            }
+        } catch (JwtException e) {
+            throw new IllegalStateException("Unauthorized access", e);
+        }
+
         // Create headers with the token
         HttpHeaders headers = new HttpHeaders();
         headers.set("Authorization", authHeader);
@@ -47,4 +70,13 @@ public class UserService {
             throw new IllegalStateException("Error communicating with auth service", e);
         }
     }
-}
\ No newline at end of file
+
+    // Carts, wishlists and memberships are keyed by the raw current-user response body, so keep that exact shape
+    private static String userKey(String userId) {
+        try {
+            return objectMapper.writeValueAsString(Map.of("userId", userId));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not build user key", e);
+        }
+    }
+}
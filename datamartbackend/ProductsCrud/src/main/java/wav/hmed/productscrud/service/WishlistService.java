@@ -1,68 +1,166 @@
 package wav.hmed.productscrud.service;
 
+import com.mongodb.DBRef;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
-import wav.hmed.productscrud.model.Product;
 import wav.hmed.productscrud.model.Wishlist;
 import wav.hmed.productscrud.repository.WishlistRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Service
 public class WishlistService {
+    private static final Logger log = LogManager.getLogger(WishlistService.class);
+
     @Autowired
     private WishlistRepository wishlistRepository;
 
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     public Wishlist getWishlist(String userId) {
-        // Try to find existing wishlist
         Wishlist wishlist = wishlistRepository.findByUserId(userId);
 
-        // If no wishlist exists, create a new one
+        // Browsing users get an empty view; the document is only created by the first add
         if (wishlist == null) {
             wishlist = new Wishlist();
             wishlist.setUserId(userId);
-            wishlist = wishlistRepository.save(wishlist);
+            return wishlist;
         }
 
+        wishlist.setProducts(productService.getProductCards(wishlist.getProductIds()));
         return wishlist;
     }
 
     public void addToWishlist(String userId, ObjectId productId) {
-        Wishlist wishlist = getWishlist(userId);
-
-        // Check if product already exists in wishlist
-        boolean productExists = wishlist.getProducts().stream()
-                .anyMatch(p -> p != null && p.getId() != null &&
-                        new ObjectId(p.getId()).equals(productId));
-
-        if (!productExists) {
-            Product product = productService.getProductById(productId.toString());
-            if (product != null) {
-                wishlist.getProducts().add(product);
-                wishlistRepository.save(wishlist);
-            }
+        productService.getProductById(productId.toString()); // Throws if the product does not exist
+        Update update = new Update().addToSet("productIds", productId);
+        try {
+            mongoTemplate.upsert(byUser(userId), update, Wishlist.class);
+        } catch (DuplicateKeyException e) {
+            // A concurrent first add created the wishlist; the retry matches it instead of inserting
+            mongoTemplate.upsert(byUser(userId), update, Wishlist.class);
         }
     }
 
     public void removeFromWishlist(String userId, ObjectId productId) {
-        Wishlist wishlist = getWishlist(userId);
-        wishlist.getProducts().removeIf(p -> p != null && p.getId() != null &&
-                new ObjectId(p.getId()).equals(productId));
-        wishlistRepository.save(wishlist);
+        mongoTemplate.updateFirst(byUser(userId), new Update().pull("productIds", productId), Wishlist.class);
     }
 
-
     public boolean isInWishlist(String userId, ObjectId productId) {
-        Wishlist wishlist = getWishlist(userId);
-        return wishlist.getProducts().stream()
-                .anyMatch(product -> product != null && new ObjectId(product.getId()).equals(productId));
+        // The unique user_idx finds the user's single wishlist; the membership test runs on that one document
+        Query query = Query.query(Criteria.where("userId").is(userId).and("productIds").is(productId));
+        return mongoTemplate.exists(query, Wishlist.class);
+    }
+
+    // Which of the given products are wishlisted, answered with one read of the user's id set
+    public Map<String, Boolean> checkWishlist(String userId, Collection<String> productIds) {
+        Query query = byUser(userId);
+        query.fields().include("productIds");
+        Wishlist wishlist = mongoTemplate.findOne(query, Wishlist.class);
+
+        Set<ObjectId> wishlisted = wishlist != null && wishlist.getProductIds() != null
+                ? new HashSet<>(wishlist.getProductIds())
+                : Set.of();
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        for (String productId : productIds) {
+            result.put(productId, ObjectId.isValid(productId) && wishlisted.contains(new ObjectId(productId)));
+        }
+        return result;
     }
 
     public void clearWishlist(String userId) {
-        Wishlist wishlist = getWishlist(userId);
-        wishlist.getProducts().clear();
-        wishlistRepository.save(wishlist);
+        mongoTemplate.updateFirst(byUser(userId), new Update().set("productIds", new ArrayList<>()), Wishlist.class);
+    }
+
+    private Query byUser(String userId) {
+        return Query.query(Criteria.where("userId").is(userId));
+    }
+
+    /**
+     * Converts wishlists from the old {@code @DBRef products} list to the {@code productIds} set, merges
+     * duplicate wishlists of the same user and then creates the unique {@code user_idx} on userId (here rather
+     * than by annotation so it cannot fail on legacy duplicates), dropping the old {userId, productIds} index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateWishlists() {
+        try {
+            MongoCollection<Document> collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Wishlist.class));
+
+            int converted = 0;
+            for (Document legacy : collection.find(Filters.exists("products"))) {
+                List<ObjectId> ids = new ArrayList<>();
+                for (Object ref : legacy.getList("products", Object.class, List.of())) {
+                    if (ref instanceof DBRef dbRef && dbRef.getId() instanceof ObjectId id) {
+                        ids.add(id);
+                    }
+                }
+                collection.updateOne(Filters.eq("_id", legacy.get("_id")),
+                        Updates.combine(Updates.addEachToSet("productIds", ids), Updates.unset("products")));
+                converted++;
+            }
+
+            int merged = 0;
+            List<Document> duplicates = collection.aggregate(List.of(
+                    Aggregates.group("$userId", Accumulators.push("ids", "$_id"), Accumulators.sum("count", 1)),
+                    Aggregates.match(Filters.gt("count", 1))
+            )).into(new ArrayList<>());
+            for (Document duplicate : duplicates) {
+                List<Object> ids = duplicate.getList("ids", Object.class);
+                List<Object> extra = ids.subList(1, ids.size());
+                List<ObjectId> productIds = new ArrayList<>();
+                for (Document wishlist : collection.find(Filters.in("_id", extra))) {
+                    productIds.addAll(wishlist.getList("productIds", ObjectId.class, List.of()));
+                }
+                collection.updateOne(Filters.eq("_id", ids.get(0)), Updates.addEachToSet("productIds", productIds));
+                collection.deleteMany(Filters.in("_id", extra));
+                merged += extra.size();
+            }
+
+            mongoTemplate.indexOps(Wishlist.class).ensureIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .unique()
+                    .named("user_idx"));
+            // user_idx already pins every lookup to one document; the old unique multikey index on
+            // {userId, productIds} added nothing but misleading duplicate-key errors
+            if (mongoTemplate.indexOps(Wishlist.class).getIndexInfo().stream()
+                    .anyMatch(index -> "user_products_idx".equals(index.getName()))) {
+                mongoTemplate.indexOps(Wishlist.class).dropIndex("user_products_idx");
+            }
+
+            if (converted > 0 || merged > 0) {
+                log.info("Wishlist migration: {} converted from DBRefs, {} duplicates merged", converted, merged);
+            }
+        } catch (MongoException e) {
+            log.warn("Could not migrate wishlists: {}", e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+-- Adds a line or increases its quantity; either way the line takes the product's current details and price.
+-- KEYS[1] cart hash (no TTL until the flusher has written it; the caller marks the cart dirty afterwards)
+-- ARGV[1] productId, ARGV[2] quantity, ARGV[3] line JSON, ARGV[4] now (ms)
+if redis.call('HEXISTS', KEYS[1], 'meta:loaded') == 0 then
+    return {'miss'}
+end
+local pid = ARGV[1]
+if redis.call('HEXISTS', KEYS[1], 'line:' .. pid) == 1 then
+    redis.call('HINCRBY', KEYS[1], 'qty:' .. pid, ARGV[2])
+    redis.call('HSET', KEYS[1], 'line:' .. pid, ARGV[3])
+else
+    local pos = redis.call('HINCRBY', KEYS[1], 'meta:seq', 1)
+    redis.call('HSET', KEYS[1], 'line:' .. pid, ARGV[3], 'qty:' .. pid, ARGV[2], 'pos:' .. pid, pos)
+end
+redis.call('HSET', KEYS[1], 'meta:lastModified', ARGV[4])
+redis.call('PERSIST', KEYS[1])
+local cart = redis.call('HGETALL', KEYS[1])
+table.insert(cart, 1, 'ok')
+return cart
@@ -0,0 +1,16 @@
+-- Claims a batch of dirty carts for one flusher. The ids move to the flusher's processing set and stay there
+-- until the flusher has written them, so a batch is never lost: the same flusher retries it on its next run,
+-- and if the flusher dies, another one requeues it once the lease has lapsed.
+-- KEYS[1] dirty set, KEYS[2] this flusher's processing set, KEYS[3] flusher registry, KEYS[4] this flusher's lease
+-- ARGV[1] batch size, ARGV[2] flusher id, ARGV[3] lease (ms)
+redis.call('SADD', KEYS[3], ARGV[2])
+redis.call('SET', KEYS[4], '1', 'PX', ARGV[3])
+local pending = redis.call('SMEMBERS', KEYS[2])
+if #pending > 0 then
+    return pending
+end
+local ids = redis.call('SPOP', KEYS[1], ARGV[1])
+if #ids > 0 then
+    redis.call('SADD', KEYS[2], unpack(ids))
+end
+return ids
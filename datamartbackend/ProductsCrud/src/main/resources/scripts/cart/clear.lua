@@ -0,0 +1,6 @@
+-- Replaces the cart with an empty one; the flusher then deletes the Mongo document.
+-- KEYS[1] cart hash (no TTL until the flusher has written it; the caller marks the cart dirty afterwards)
+-- ARGV[1] now (ms)
+redis.call('DEL', KEYS[1])
+redis.call('HSET', KEYS[1], 'meta:loaded', '1', 'meta:lastModified', ARGV[1])
+return {'ok'}
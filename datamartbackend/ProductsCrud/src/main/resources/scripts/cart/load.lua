@@ -0,0 +1,10 @@
+-- Seeds a cart hash from its Mongo snapshot unless another request already did.
+-- KEYS[1] cart hash
+-- ARGV[1] ttl (ms), ARGV[2..] field/value pairs
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    redis.call('HSET', KEYS[1], unpack(ARGV, 2))
+    redis.call('PEXPIRE', KEYS[1], ARGV[1])
+end
+local cart = redis.call('HGETALL', KEYS[1])
+table.insert(cart, 1, 'ok')
+return cart
@@ -0,0 +1,13 @@
+-- Removes a line.
+-- KEYS[1] cart hash (no TTL until the flusher has written it; the caller marks the cart dirty afterwards)
+-- ARGV[1] productId, ARGV[2] now (ms)
+if redis.call('HEXISTS', KEYS[1], 'meta:loaded') == 0 then
+    return {'miss'}
+end
+local pid = ARGV[1]
+redis.call('HDEL', KEYS[1], 'line:' .. pid, 'qty:' .. pid, 'pos:' .. pid)
+redis.call('HSET', KEYS[1], 'meta:lastModified', ARGV[2])
+redis.call('PERSIST', KEYS[1])
+local cart = redis.call('HGETALL', KEYS[1])
+table.insert(cart, 1, 'ok')
+return cart
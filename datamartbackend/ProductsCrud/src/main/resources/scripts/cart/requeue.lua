@@ -0,0 +1,14 @@
+-- Returns the unwritten batch of a flusher whose lease has lapsed to the dirty set and forgets the flusher.
+-- KEYS[1] dirty set, KEYS[2] that flusher's processing set, KEYS[3] flusher registry, KEYS[4] that flusher's lease
+-- ARGV[1] flusher id
+if redis.call('EXISTS', KEYS[4]) == 1 then
+    return 0
+end
+local requeued = 0
+if redis.call('EXISTS', KEYS[2]) == 1 then
+    requeued = redis.call('SCARD', KEYS[2])
+    redis.call('SUNIONSTORE', KEYS[1], KEYS[1], KEYS[2])
+    redis.call('DEL', KEYS[2])
+end
+redis.call('SREM', KEYS[3], ARGV[1])
+return requeued
@@ -0,0 +1,20 @@
+-- Sets the quantity of an existing line, removing it when the quantity is <= 0.
+-- KEYS[1] cart hash (no TTL until the flusher has written it; the caller marks the cart dirty afterwards)
+-- ARGV[1] productId, ARGV[2] quantity, ARGV[3] now (ms)
+if redis.call('HEXISTS', KEYS[1], 'meta:loaded') == 0 then
+    return {'miss'}
+end
+local pid = ARGV[1]
+if redis.call('HEXISTS', KEYS[1], 'line:' .. pid) == 0 then
+    return {'absent'}
+end
+if tonumber(ARGV[2]) <= 0 then
+    redis.call('HDEL', KEYS[1], 'line:' .. pid, 'qty:' .. pid, 'pos:' .. pid)
+else
+    redis.call('HSET', KEYS[1], 'qty:' .. pid, ARGV[2])
+end
+redis.call('HSET', KEYS[1], 'meta:lastModified', ARGV[3])
+redis.call('PERSIST', KEYS[1])
+local cart = redis.call('HGETALL', KEYS[1])
+table.insert(cart, 1, 'ok')
+return cart
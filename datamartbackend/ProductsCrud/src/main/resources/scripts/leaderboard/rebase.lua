@@ -0,0 +1,29 @@
+-- Moves a decayed window's landmark to now: rescales every board of the window so scores stay
+-- small, and drops products whose decayed score fell below the threshold.
+-- KEYS[1] window landmark, KEYS[2] window registry set, KEYS[3..] the registry's boards as read by the caller
+-- ARGV[1] lambda, ARGV[2] now (s), ARGV[3] prune threshold
+-- Returns -1 without changing anything when the registry gained a board the caller did not pass.
+local passed = {}
+for i = 3, #KEYS do
+    passed[KEYS[i]] = true
+end
+for _, key in ipairs(redis.call('SMEMBERS', KEYS[2])) do
+    if not passed[key] then
+        return -1
+    end
+end
+local landmark = tonumber(redis.call('GET', KEYS[1]))
+if not landmark then
+    return 0
+end
+local weight = math.exp(-tonumber(ARGV[1]) * (tonumber(ARGV[2]) - landmark))
+for i = 3, #KEYS do
+    local key = KEYS[i]
+    redis.call('ZUNIONSTORE', key, 1, key, 'WEIGHTS', weight)
+    redis.call('ZREMRANGEBYSCORE', key, '-inf', '(' .. ARGV[3])
+    if redis.call('EXISTS', key) == 0 then
+        redis.call('SREM', KEYS[2], key)
+    end
+end
+redis.call('SET', KEYS[1], ARGV[2])
+return #KEYS - 2
@@ -0,0 +1,25 @@
+-- Adds a sale to every leaderboard of one window the product appears in.
+-- Decayed boards use forward decay: a sale at time t scores qty * e^(lambda * (t - landmark)),
+-- so older sales never have to be touched and ordering stays correct between rebases.
+-- KEYS[1] window landmark, KEYS[2] window registry set, KEYS[3..] leaderboard zsets (all in one hash slot)
+-- ARGV[1] productId, ARGV[2] quantity, ARGV[3] now (s), ARGV[4] lambda (0 = no decay)
+local pid = ARGV[1]
+local qty = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local lambda = tonumber(ARGV[4])
+local score = qty
+if lambda > 0 then
+    local landmark = tonumber(redis.call('GET', KEYS[1]))
+    if not landmark then
+        landmark = now
+        redis.call('SET', KEYS[1], now)
+    end
+    score = qty * math.exp(lambda * (now - landmark))
+end
+for i = 3, #KEYS do
+    redis.call('ZINCRBY', KEYS[i], score, pid)
+    if lambda > 0 then
+        redis.call('SADD', KEYS[2], KEYS[i])
+    end
+end
+return #KEYS - 2
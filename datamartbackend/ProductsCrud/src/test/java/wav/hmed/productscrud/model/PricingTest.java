@@ -0,0 +1,44 @@
+package wav.hmed.productscrud.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingTest {
+
+    @Test
+    void testToCents_RoundsHalfUp() {
+        assertEquals(1999L, Pricing.toCents(19.99));
+        assertEquals(13L, Pricing.toCents(0.125));
+        assertEquals(12L, Pricing.toCents(0.124));
+        assertEquals(0L, Pricing.toCents(0.0));
+        assertNull(Pricing.toCents(null));
+    }
+
+    @Test
+    void testDiscountedCents_RoundsHalfUp() {
+        // 150 * 0.99 = 148.5
+        assertEquals(149L, Pricing.discountedCents(150L, 1));
+        // 999 * 0.85 = 849.15
+        assertEquals(849L, Pricing.discountedCents(999L, 15));
+        // 1999 * 0.75 = 1499.25
+        assertEquals(1499L, Pricing.discountedCents(1999L, 25));
+        // 3 * 0.5 = 1.5
+        assertEquals(2L, Pricing.discountedCents(3L, 50));
+    }
+
+    @Test
+    void testDiscountedCents_ClampsDiscount() {
+        assertEquals(1000L, Pricing.discountedCents(1000L, null));
+        assertEquals(1000L, Pricing.discountedCents(1000L, -10));
+        assertEquals(0L, Pricing.discountedCents(1000L, 100));
+        assertEquals(0L, Pricing.discountedCents(1000L, 150));
+        assertNull(Pricing.discountedCents(null, 10));
+    }
+
+    @Test
+    void testToAmount() {
+        assertEquals(19.99, Pricing.toAmount(1999L));
+        assertNull(Pricing.toAmount(null));
+    }
+}
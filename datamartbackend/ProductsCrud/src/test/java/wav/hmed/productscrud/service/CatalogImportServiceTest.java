@@ -0,0 +1,183 @@
+package wav.hmed.productscrud.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import wav.hmed.productscrud.model.ImportReport;
+import wav.hmed.productscrud.model.Product;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CatalogImportServiceTest {
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ProductService productService;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private CatalogCounterService catalogCounterService;
+    @Mock
+    private PricingService pricingService;
+    @Mock
+    private BulkOperations bulk;
+
+    @InjectMocks
+    private CatalogImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(importService, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Product.class))).thenReturn(bulk);
+    }
+
+    @Test
+    void testImportCsv_ReportsEachRejectedRowWithItsLine() {
+        // Arrange
+        String csv = """
+                name,price,discount,stock
+                Lamp,19.99,,
+                ,5.00,,
+                Chair,-1,,
+                Desk,abc,,
+                Shelf,10,150,
+                Stool,12,,3
+                """;
+        BulkWriteResult result = result(2, 0);
+        when(bulk.execute()).thenReturn(result);
+
+        // Act
+        ImportReport report = importService.importCatalog("products", "csv", false, 100, stream(csv));
+
+        // Assert
+        assertEquals(6, report.getRowsRead());
+        assertEquals(2, report.getInserted());
+        assertEquals(4, report.getFailed());
+        List<ImportReport.RowError> errors = report.getErrors();
+        assertEquals(3, errors.get(0).getLine());
+        assertEquals("name is required", errors.get(0).getMessage());
+        assertEquals(4, errors.get(1).getLine());
+        assertEquals("price must be a non-negative number", errors.get(1).getMessage());
+        assertEquals(5, errors.get(2).getLine());
+        assertTrue(errors.get(2).getMessage().startsWith("Invalid value: "));
+        assertEquals(6, errors.get(3).getLine());
+        assertEquals("discount must be between 0 and 100", errors.get(3).getMessage());
+        verify(bulk, times(2)).insert(any(Object.class));
+        verify(catalogVersionService).bump(CatalogVersionService.PRODUCTS);
+    }
+
+    @Test
+    void testImportNdjson_ReportsMalformedLinesAndRejectedWrites() {
+        // Arrange: the second valid row collides with an existing document
+        String ndjson = """
+                {"name":"Lamp","price":19.99}
+                {"name": oops
+
+                {"name":"Chair","price":5}
+                """;
+        BulkWriteResult result = result(1, 0);
+        BulkOperationException rejected = mock(BulkOperationException.class);
+        when(rejected.getResult()).thenReturn(result);
+        when(rejected.getErrors()).thenReturn(List.of(
+                new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)));
+        when(bulk.execute()).thenThrow(rejected);
+
+        // Act
+        ImportReport report = importService.importCatalog("products", "ndjson", false, 100, stream(ndjson));
+
+        // Assert
+        assertEquals(3, report.getRowsRead());
+        assertEquals(1, report.getInserted());
+        assertEquals(2, report.getFailed());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("Malformed JSON"));
+        assertEquals(4, report.getErrors().get(1).getLine());
+        assertEquals("E11000 duplicate key", report.getErrors().get(1).getMessage());
+    }
+
+    @Test
+    void testUpsertCsv_SetsOnlyTheColumnsInTheRow() {
+        // Arrange
+        ObjectId id = new ObjectId();
+        String csv = "id,name,price\n" + id.toHexString() + ",Lamp,24.5\n";
+        BulkWriteResult result = result(0, 1);
+        when(bulk.execute()).thenReturn(result);
+
+        // Act
+        ImportReport report = importService.importCatalog("products", "csv", true, 100, stream(csv));
+
+        // Assert
+        assertEquals(1, report.getUpdated());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).upsert(query.capture(), update.capture());
+        assertEquals(id, query.getValue().getQueryObject().get("_id"));
+
+        Document operators = update.getValue().getUpdateObject();
+        // Stock, counters and stored prices of the existing document are left alone
+        assertEquals(Set.of("name", "price"), ((Document) operators.get("$set")).keySet());
+        assertEquals(24.5, ((Document) operators.get("$set")).get("price"));
+        Document onInsert = (Document) operators.get("$setOnInsert");
+        assertTrue(onInsert.containsKey("postedDate"));
+        assertEquals(0, onInsert.get("purchaseCount"));
+        assertTrue(onInsert.containsKey("ratingSum"));
+        assertTrue(onInsert.containsKey("ratingCount"));
+        assertTrue(((Document) operators.get("$currentDate")).containsKey("updatedAt"));
+
+        // Upserts set price directly, so the stored cents are recomputed afterwards
+        verify(pricingService).recomputeChangedSince(any(Instant.class));
+        verify(catalogCounterService).reconcileNow();
+    }
+
+    private static BulkWriteResult result(int inserted, int matched) {
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        when(result.getInsertedCount()).thenReturn(inserted);
+        when(result.getMatchedCount()).thenReturn(matched);
+        when(result.getUpserts()).thenReturn(List.of());
+        return result;
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
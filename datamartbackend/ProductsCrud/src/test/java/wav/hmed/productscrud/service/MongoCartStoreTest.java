@@ -0,0 +1,199 @@
+package wav.hmed.productscrud.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import wav.hmed.productscrud.model.Cart;
+import wav.hmed.productscrud.model.CartItem;
+import wav.hmed.productscrud.repository.CartRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MongoCartStoreTest {
+    private static final String USER_ID = "user-1";
+    private static final String PRODUCT_ID = "6650f1c2a1b2c3d4e5f60718";
+
+    @Mock
+    private CartRepository cartRepository;
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private MongoCartStore cartStore;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cartStore = new MongoCartStore(cartRepository, mongoTemplate);
+    }
+
+    @Test
+    void testAddItem_ExistingLineIncrementsQuantityAndTakesCurrentPrice() {
+        // Arrange
+        Cart cart = cart();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(cart);
+
+        // Act
+        Cart result = cartStore.addItem(USER_ID, item(2, 1999L));
+
+        // Assert
+        assertSame(cart, result);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(Cart.class));
+        assertEquals(PRODUCT_ID, query.getValue().getQueryObject().get("items.productId"));
+        Document operators = update.getValue().getUpdateObject();
+        assertEquals(2, ((Document) operators.get("$inc")).get("items.$.quantity"));
+        assertEquals(1999L, ((Document) operators.get("$set")).get("items.$.unitPriceCents"));
+        assertEquals(19.99, ((Document) operators.get("$set")).get("items.$.price"));
+    }
+
+    @Test
+    void testAddItem_NewLineIsPushedOnlyIfAbsent() {
+        // Arrange
+        Cart cart = cart();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(null, cart);
+        CartItem item = item(1, 1999L);
+
+        // Act
+        Cart result = cartStore.addItem(USER_ID, item);
+
+        // Assert
+        assertSame(cart, result);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(Cart.class));
+        assertEquals(new Document("$ne", PRODUCT_ID), query.getAllValues().get(1).getQueryObject().get("items.productId"));
+        assertSame(item, ((Document) update.getAllValues().get(1).getUpdateObject().get("$push")).get("items"));
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(Cart.class));
+    }
+
+    @Test
+    void testAddItem_FirstAddCreatesTheCart() {
+        // Arrange: no cart yet, so neither the existing-line nor the new-line update matches at first
+        Cart cart = cart();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(null, null, null, cart);
+
+        // Act
+        Cart result = cartStore.addItem(USER_ID, item(1, 1999L));
+
+        // Assert
+        assertSame(cart, result);
+        ArgumentCaptor<Update> upsert = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), upsert.capture(), eq(Cart.class));
+        // The upsert only creates an empty cart; it never touches the lines of an existing one
+        assertNull(upsert.getValue().getUpdateObject().get("$set"));
+        assertNotNull(((Document) upsert.getValue().getUpdateObject().get("$setOnInsert")).get("items"));
+    }
+
+    @Test
+    void testUpdateQuantity_SetsQuantityOfExistingLine() {
+        // Arrange
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(cart());
+
+        // Act
+        cartStore.updateQuantity(USER_ID, PRODUCT_ID, 5);
+
+        // Assert
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(Cart.class));
+        assertEquals(5, ((Document) update.getValue().getUpdateObject().get("$set")).get("items.$.quantity"));
+    }
+
+    @Test
+    void testUpdateQuantity_ZeroRemovesTheLine() {
+        // Arrange
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(cart());
+
+        // Act
+        cartStore.updateQuantity(USER_ID, PRODUCT_ID, 0);
+
+        // Assert
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(Cart.class));
+        Document operators = update.getValue().getUpdateObject();
+        assertEquals(new Document("productId", PRODUCT_ID), ((Document) operators.get("$pull")).get("items"));
+        assertNull(operators.get("$set"));
+    }
+
+    @Test
+    void testUpdateQuantity_MissingLine() {
+        // Arrange
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(null);
+
+        // Act & Assert
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cartStore.updateQuantity(USER_ID, PRODUCT_ID, 3));
+        assertEquals("Item not found in cart", e.getMessage());
+    }
+
+    @Test
+    void testRemoveItem_PullsTheLine() {
+        // Arrange
+        Cart cart = cart();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(cart);
+
+        // Act
+        Cart result = cartStore.removeItem(USER_ID, PRODUCT_ID);
+
+        // Assert
+        assertSame(cart, result);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(Cart.class));
+        assertEquals(new Document("productId", PRODUCT_ID),
+                ((Document) update.getValue().getUpdateObject().get("$pull")).get("items"));
+    }
+
+    @Test
+    void testRemoveItem_WithoutCartReturnsEmptyCartAndCreatesNothing() {
+        // Arrange
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(null);
+        when(cartRepository.findByUserId(USER_ID)).thenReturn(Optional.empty());
+
+        // Act
+        Cart result = cartStore.removeItem(USER_ID, PRODUCT_ID);
+
+        // Assert
+        assertEquals(USER_ID, result.getUserId());
+        assertTrue(result.getItems().isEmpty());
+        verify(cartRepository, never()).save(any());
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(Cart.class));
+    }
+
+    private static Cart cart() {
+        Cart cart = new Cart();
+        cart.setUserId(USER_ID);
+        cart.setItems(new ArrayList<>(List.of(item(1, 1999L))));
+        return cart;
+    }
+
+    private static CartItem item(int quantity, Long unitPriceCents) {
+        CartItem item = new CartItem();
+        item.setProductId(PRODUCT_ID);
+        item.setName("Lamp");
+        item.setPrice(19.99);
+        item.setQuantity(quantity);
+        item.setUnitPriceCents(unitPriceCents);
+        return item;
+    }
+}
@@ -12,6 +12,11 @@ console.log('API_BASE_URL:', API_BASE_URL); // Debug log for API base URL
 const API_URL = `http://localhost:8081/api/v1/auth`;
 console.log('Full API_URL:', API_URL); // Debug log for full API URL
 
+// Refresh the access token this long before it expires
+const REFRESH_MARGIN_MS = 60 * 1000;
+// Held by the tab exchanging the refresh token, so two tabs never present the same one (that counts as reuse)
+const REFRESH_LOCK = 'auth-refresh';
+
 
 export interface RegisterRequest {
     fullName: string;
@@ -27,6 +32,8 @@ export interface LoginRequest {
 export interface AuthResponse {
     id: string;
     token: string;
+    refreshToken?: string;
+    expiresIn?: number; // access token lifetime in seconds
     email: string;
     fullName: string;
 }
@@ -42,13 +49,28 @@ export interface DecodedToken {
 class AuthService {
     private static instance: AuthService;
     private token: string | null = null;
+    private refreshToken: string | null = null;
+    private refreshTimer: ReturnType<typeof setTimeout> | null = null;
+    // Shared by concurrent callers in this tab; other tabs are serialised by REFRESH_LOCK
+    private refreshing: Promise<string> | null = null;
 
 
 
     private constructor() {
         this.token = localStorage.getItem('token');
+        this.refreshToken = localStorage.getItem('refreshToken');
         // Add default headers for all requests
         axios.defaults.headers.common['Content-Type'] = 'application/json';
+        this.installRefreshInterceptor();
+        // Tokens are shared through localStorage; follow rotations and logouts made in other tabs
+        window.addEventListener('storage', (event) => {
+            if (event.key === 'token' || event.key === 'refreshToken' || event.key === null) {
+                this.token = localStorage.getItem('token');
+                this.refreshToken = localStorage.getItem('refreshToken');
+                this.scheduleRefresh();
+            }
+        });
+        this.scheduleRefresh();
     }
 
     public static getInstance(): AuthService {
@@ -76,7 +98,7 @@ class AuthService {
 
             // console.log('Registration response:', response.data);
             const authResponse = response.data as AuthResponse;
-            this.setToken(authResponse.token);
+            this.setSession(authResponse);
             return authResponse;
         } catch (error: any) {
             console.error('Full registration error:', error);
@@ -109,7 +131,7 @@ class AuthService {
             const response = await axios.post(`${API_URL}/login`, credentials);
             console.log('Login response:', response.data);
             const authResponse = response.data as AuthResponse;
-            this.setToken(authResponse.token);
+            this.setSession(authResponse);
             return authResponse;
         } catch (error: any) {
             console.error('Login error:', error);
@@ -139,7 +161,51 @@ class AuthService {
         }
     }
 
+    // Exchanges the refresh token for a new access token; the old refresh token stops working
+    refresh(): Promise<string> {
+        if (!this.refreshing) {
+            const seen = this.refreshToken;
+            this.refreshing = this.withRefreshLock(async () => {
+                try {
+                    // Read at exchange time: another tab may have rotated it while we waited for the lock
+                    const stored = localStorage.getItem('refreshToken');
+                    if (!stored) {
+                        throw new Error('No refresh token');
+                    }
+                    const storedToken = localStorage.getItem('token');
+                    if (stored !== seen && storedToken) {
+                        this.token = storedToken;
+                        this.refreshToken = stored;
+                        this.scheduleRefresh();
+                        return storedToken;
+                    }
+                    const response = await axios.post(`${API_URL}/refresh`, { refreshToken: stored });
+                    const authResponse = response.data as AuthResponse;
+                    this.setSession(authResponse);
+                    return authResponse.token;
+                } catch (error) {
+                    console.error('Token refresh failed:', error);
+                    this.clearToken();
+                    throw error;
+                }
+            }).finally(() => {
+                this.refreshing = null;
+            });
+        }
+        return this.refreshing;
+    }
+
+    // Runs the task while holding a lock shared by every tab of this origin (where Web Locks are available)
+    private withRefreshLock<T>(task: () => Promise<T>): Promise<T> {
+        if (typeof navigator !== 'undefined' && navigator.locks) {
+            return navigator.locks.request(REFRESH_LOCK, task) as Promise<T>;
+        }
+        return task();
+    }
+
     isAuthenticated(): boolean {
+        // An expired access token is replaced on the next refresh
+        if (this.refreshToken) return true;
         if (!this.token) return false;
 
         try {
@@ -164,14 +230,67 @@ class AuthService {
         };
     }
 
+    private setSession(authResponse: AuthResponse): void {
+        this.setToken(authResponse.token);
+        if (authResponse.refreshToken) {
+            this.refreshToken = authResponse.refreshToken;
+            localStorage.setItem('refreshToken', authResponse.refreshToken);
+        }
+        this.scheduleRefresh();
+    }
+
     private setToken(token: string): void {
         this.token = token;
         localStorage.setItem('token', token);
+        if (localStorage.getItem('authToken')) {
+            localStorage.setItem('authToken', token);
+        }
     }
 
     private clearToken(): void {
         this.token = null;
+        this.refreshToken = null;
+        if (this.refreshTimer) {
+            clearTimeout(this.refreshTimer);
+            this.refreshTimer = null;
+        }
         localStorage.removeItem('token');
+        localStorage.removeItem('refreshToken');
+    }
+
+    // Keeps the stored token fresh for callers that read it straight from localStorage
+    private scheduleRefresh(): void {
+        if (this.refreshTimer) {
+            clearTimeout(this.refreshTimer);
+            this.refreshTimer = null;
+        }
+        if (!this.refreshToken) return;
+
+        let expiresAt = 0;
+        try {
+            expiresAt = this.token ? jwtDecode<DecodedToken>(this.token).exp * 1000 : 0;
+        } catch {
+            expiresAt = 0;
+        }
+        const delay = Math.max(0, expiresAt - Date.now() - REFRESH_MARGIN_MS);
+        this.refreshTimer = setTimeout(() => {
+            this.refresh().catch(() => undefined);
+        }, delay);
+    }
+
+    // Retries a request once with a fresh token when the access token was rejected
+    private installRefreshInterceptor(): void {
+        axios.interceptors.response.use(undefined, async (error) => {
+            const config = error.config;
+            const isAuthCall = config?.url?.startsWith(API_URL);
+            if (error.response?.status !== 401 || !config || config._retried || isAuthCall || !this.refreshToken) {
+                return Promise.reject(error);
+            }
+            config._retried = true;
+            const token = await this.refresh();
+            config.headers = { ...config.headers, Authorization: `Bearer ${token}` };
+            return axios(config);
+        });
     }
 
     decodeToken(): DecodedToken | null {